@@ -0,0 +1,303 @@
+package ca.comp2522.bookstore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of bookstore queries that are answered together in one shared pass over the books.
+ * Each query registered on the batch returns a {@link Result} handle whose value becomes
+ * available once {@link #execute()} has run. Answers describe the books as they were during that
+ * pass and do not change if the bookstore changes afterwards.
+ *
+ * @param <T> the type of literature queried, which extends Literature
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class BatchQuery<T extends Literature>
+{
+
+    private final List<T>              source; // The books scanned by the batch
+    private final List<Accumulator<?>> accumulators; // One accumulator per registered query
+    private       int                  scannedCount; // The number of books the shared pass scanned
+    private       boolean              needsUpperTitle; // True if any query compares upper-case titles
+    private       boolean              executed; // True once the shared pass has run
+
+    /**
+     * The answer to one query in a batch.
+     *
+     * @param <R> the type of the answer
+     */
+    public interface Result<R>
+    {
+
+        /**
+         * Returns the answer to the query.
+         *
+         * @return the answer
+         * @throws IllegalStateException if the batch has not been executed
+         */
+        R get();
+    }
+
+    /*
+     * Collects the answer to one query while the batch scans the books.
+     */
+    private abstract class Accumulator<R> implements Result<R>
+    {
+
+        /*
+         * Updates the accumulator with the next book.
+         *
+         * @param book       the next book
+         * @param upperTitle the book's title in upper case, or null if no query needs it
+         */
+        abstract void accept(T book, String upperTitle);
+
+        /*
+         * Returns the accumulated answer.
+         *
+         * @return the answer
+         */
+        abstract R value();
+
+        @Override
+        public R get()
+        {
+            if(!executed)
+            {
+                throw new IllegalStateException("Batch has not been executed");
+            }
+            return value();
+        }
+    }
+
+    /**
+     * Constructs a new BatchQuery over the given books.
+     *
+     * @param source the books to scan
+     */
+    BatchQuery(final List<T> source)
+    {
+        this.source          = source;
+        this.accumulators    = new ArrayList<>();
+        this.scannedCount    = 0;
+        this.needsUpperTitle = false;
+        this.executed        = false;
+    }
+
+    /**
+     * Adds a query for the number of books whose titles contain the specified word (case-insensitive).
+     *
+     * @param word the word to search for in book titles
+     * @return the handle for the number of books containing the word
+     */
+    public Result<Integer> countContaining(final String word)
+    {
+        final String upperWord = word.toUpperCase();
+
+        needsUpperTitle = true;
+        return register(new Accumulator<Integer>()
+        {
+            private int bookCount = BookStore.BEGINNING_COUNT;
+
+            @Override
+            void accept(final T book, final String upperTitle)
+            {
+                if(upperTitle.contains(upperWord))
+                {
+                    bookCount++;
+                }
+            }
+
+            @Override
+            Integer value()
+            {
+                return bookCount;
+            }
+        });
+    }
+
+    /**
+     * Adds a query for whether a book was published in the specified year.
+     *
+     * @param year the year to check
+     * @return the handle for whether a book was published in the year
+     */
+    public Result<Boolean> writtenIn(final int year)
+    {
+        return register(new Accumulator<Boolean>()
+        {
+            private boolean found = false;
+
+            @Override
+            void accept(final T book, final String upperTitle)
+            {
+                found |= book.getYearPublished() == year;
+            }
+
+            @Override
+            Boolean value()
+            {
+                return found;
+            }
+        });
+    }
+
+    /**
+     * Adds a query for the percentage of books published between the specified years (inclusive).
+     *
+     * @param first the starting year
+     * @param last  the ending year
+     * @return the handle for the percentage of books published between the years, which is 0 if there are no books
+     */
+    public Result<Integer> percentWrittenBetween(final int first, final int last)
+    {
+        return register(new Accumulator<Integer>()
+        {
+            private int bookCount = BookStore.BEGINNING_COUNT;
+
+            @Override
+            void accept(final T book, final String upperTitle)
+            {
+                if(book.getYearPublished() >= first && book.getYearPublished() <= last)
+                {
+                    bookCount++;
+                }
+            }
+
+            @Override
+            Integer value()
+            {
+                return scannedCount == 0
+                       ? 0
+                       : bookCount * BookStore.PERCENT_SHIFT / scannedCount;
+            }
+        });
+    }
+
+    /**
+     * Adds a query for the oldest book.
+     *
+     * @return the handle for the oldest book, which is null if there are no books
+     */
+    public Result<T> oldest()
+    {
+        return register(new Accumulator<T>()
+        {
+            private T oldestBook = null;
+
+            @Override
+            void accept(final T book, final String upperTitle)
+            {
+                if(oldestBook == null || book.getYearPublished() < oldestBook.getYearPublished())
+                {
+                    oldestBook = book;
+                }
+            }
+
+            @Override
+            T value()
+            {
+                return oldestBook;
+            }
+        });
+    }
+
+    /**
+     * Adds a query for the longest book title.
+     *
+     * @return the handle for the longest title, which is null if there are no books
+     */
+    public Result<String> longestTitle()
+    {
+        return register(new Accumulator<String>()
+        {
+            private String longestTitle = null;
+
+            @Override
+            void accept(final T book, final String upperTitle)
+            {
+                if(longestTitle == null || book.getTitle().length() > longestTitle.length())
+                {
+                    longestTitle = book.getTitle();
+                }
+            }
+
+            @Override
+            String value()
+            {
+                return longestTitle;
+            }
+        });
+    }
+
+    /**
+     * Adds a query for the average title length.
+     *
+     * @return the handle for the average length of book titles, which is 0 if there are no books
+     */
+    public Result<Double> averageTitleLength()
+    {
+        return register(new Accumulator<Double>()
+        {
+            private long totalLength = 0L;
+
+            @Override
+            void accept(final T book, final String upperTitle)
+            {
+                totalLength += book.getTitle().length();
+            }
+
+            @Override
+            Double value()
+            {
+                return scannedCount == 0
+                       ? 0.0
+                       : (double) totalLength / scannedCount;
+            }
+        });
+    }
+
+    /*
+     * Adds an accumulator to the batch.
+     *
+     * @param accumulator the accumulator to add
+     * @return the accumulator, as the query's result handle
+     */
+    private <R> Result<R> register(final Accumulator<R> accumulator)
+    {
+        if(executed)
+        {
+            throw new IllegalStateException("Batch has already been executed");
+        }
+
+        accumulators.add(accumulator);
+        return accumulator;
+    }
+
+    /**
+     * Answers every registered query in one pass over the books.
+     *
+     * @throws IllegalStateException if the batch has already been executed
+     */
+    public void execute()
+    {
+        if(executed)
+        {
+            throw new IllegalStateException("Batch has already been executed");
+        }
+
+        for(final T book : source)
+        {
+            final String upperTitle = needsUpperTitle ? book.getTitle().toUpperCase() : null;
+
+            for(final Accumulator<?> accumulator : accumulators)
+            {
+                accumulator.accept(book, upperTitle);
+            }
+            scannedCount++;
+        }
+        executed = true;
+    }
+}
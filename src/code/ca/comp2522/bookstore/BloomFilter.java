@@ -0,0 +1,249 @@
+package ca.comp2522.bookstore;
+
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelReader;
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelWriter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size Bloom filter over 64-bit key hashes.
+ * A negative answer is always correct; a positive answer may be a false positive.
+ * Bits are set atomically, so keys can be added from one thread while others query.
+ * A filter can be saved to a snapshot and restored without re-hashing its keys.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+class BloomFilter
+{
+
+    private static final int    MIN_BITS       = Long.SIZE; // Smallest filter, one word of bits
+    private static final int    MIN_HASHES     = 1; // A filter needs at least one hash function
+    private static final int    WORD_SHIFT     = 6; // log2 of the number of bits in a long
+    private static final int    HALF_SHIFT     = 32; // Splits a 64-bit hash into two 32-bit hashes
+    private static final int    MIX_SHIFT      = 33; // Shift used by the final avalanche step
+    private static final long   FNV_OFFSET     = 0xcbf29ce484222325L; // FNV-1a 64-bit offset basis
+    private static final long   FNV_PRIME      = 0x100000001b3L; // FNV-1a 64-bit prime
+    private static final long   MIX_MULTIPLIER = 0xff51afd7ed558ccdL; // Final avalanche multiplier
+    private static final double LN_2           = Math.log(2);
+
+    private final AtomicLongArray words; // The filter's bits, 64 to a word
+    private final long            bitCount; // The number of bits in the filter
+    private final int             hashCount; // The number of bits set per key
+    private final int             capacity; // The number of keys the filter is sized for
+    private final AtomicLong      insertions; // The number of keys added
+
+    /**
+     * Constructs a new BloomFilter sized for the given number of keys and false-positive rate.
+     *
+     * @param capacity          the expected number of keys
+     * @param falsePositiveRate the target false-positive rate when the filter holds that many keys
+     */
+    BloomFilter(final int capacity, final double falsePositiveRate)
+    {
+        this(capacity, bitCountFor(capacity, falsePositiveRate));
+    }
+
+    /*
+     * Constructs a new BloomFilter with the given number of bits, using the best number of hashes for its capacity.
+     *
+     * @param capacity the expected number of keys
+     * @param bitCount the number of bits, a multiple of 64
+     */
+    private BloomFilter(final int capacity, final long bitCount)
+    {
+        this(capacity, bitCount, Math.max(MIN_HASHES, (int) Math.round((double) bitCount / capacity * LN_2)));
+    }
+
+    /*
+     * Constructs a new, empty BloomFilter with exactly the given parameters.
+     *
+     * @param capacity  the expected number of keys
+     * @param bitCount  the number of bits, a multiple of 64
+     * @param hashCount the number of bits set per key
+     */
+    private BloomFilter(final int capacity,
+                        final long bitCount,
+                        final int hashCount)
+    {
+        this.bitCount   = bitCount;
+        this.hashCount  = hashCount;
+        this.capacity   = capacity;
+        this.words      = new AtomicLongArray((int) (bitCount >>> WORD_SHIFT));
+        this.insertions = new AtomicLong();
+    }
+
+    /*
+     * Returns the number of bits needed for the capacity and false-positive rate, rounded up to whole words.
+     *
+     * @param capacity          the expected number of keys
+     * @param falsePositiveRate the target false-positive rate
+     * @return the number of bits
+     */
+    private static long bitCountFor(final int capacity, final double falsePositiveRate)
+    {
+        final long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+
+        return Math.max(MIN_BITS, (bits + Long.SIZE - 1) / Long.SIZE * Long.SIZE);
+    }
+
+    /**
+     * Adds a key hash to the filter. Keys that already appear to be present are not counted again,
+     * so repeated keys such as common years do not use up the filter's capacity.
+     *
+     * @param hash the 64-bit hash of the key
+     */
+    void add(final long hash)
+    {
+        final int first  = (int) hash;
+        final int second = (int) (hash >>> HALF_SHIFT);
+
+        boolean changed = false;
+        for(int i = 0; i < hashCount; i++)
+        {
+            final long bit  = Math.floorMod(first + (long) i * second, bitCount);
+            final int  word = (int) (bit >>> WORD_SHIFT);
+            final long mask = 1L << bit;
+
+            if((words.get(word) & mask) == 0)
+            {
+                words.getAndAccumulate(word, mask, (current, added) -> current | added);
+                changed = true;
+            }
+        }
+
+        if(changed)
+        {
+            insertions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Checks if a key hash might have been added to the filter.
+     *
+     * @param hash the 64-bit hash of the key
+     * @return false if the key was definitely never added, true if it might have been
+     */
+    boolean mightContain(final long hash)
+    {
+        final int first  = (int) hash;
+        final int second = (int) (hash >>> HALF_SHIFT);
+
+        for(int i = 0; i < hashCount; i++)
+        {
+            final long bit = Math.floorMod(first + (long) i * second, bitCount);
+
+            if((words.get((int) (bit >>> WORD_SHIFT)) & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if more keys have been added than the filter was sized for.
+     *
+     * @return true if the false-positive rate is now above its target
+     */
+    boolean isSaturated()
+    {
+        return insertions.get() > capacity;
+    }
+
+    /**
+     * Writes the filter's parameters and bits to a snapshot.
+     *
+     * @param out the snapshot writer
+     * @throws IOException if the snapshot cannot be written
+     */
+    void writeTo(final ChannelWriter out) throws IOException
+    {
+        out.writeInt(capacity);
+        out.writeLong(bitCount);
+        out.writeInt(hashCount);
+        out.writeLong(insertions.get());
+        for(int i = 0; i < words.length(); i++)
+        {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(ChannelWriter)}.
+     *
+     * @param in the snapshot reader
+     * @return the restored filter
+     * @throws IOException if the snapshot cannot be read or the filter is corrupt
+     */
+    static BloomFilter readFrom(final ChannelReader in) throws IOException
+    {
+        final int         capacity   = in.readCount();
+        final long        bitCount   = in.readLong();
+        final int         hashCount  = in.readInt();
+        final long        insertions = in.readLong();
+        final BloomFilter filter;
+
+        if(capacity == 0 || bitCount < MIN_BITS || bitCount % Long.SIZE != 0
+           || (bitCount >>> WORD_SHIFT) * Long.BYTES > in.remaining() || hashCount < MIN_HASHES || insertions < 0)
+        {
+            throw new IOException("Corrupt snapshot: invalid Bloom filter");
+        }
+
+        filter = new BloomFilter(capacity, bitCount, hashCount);
+        filter.insertions.set(insertions);
+        for(int i = 0; i < filter.words.length(); i++)
+        {
+            filter.words.set(i, in.readLong());
+        }
+        return filter;
+    }
+
+    /**
+     * Hashes a string key to 64 bits.
+     *
+     * @param key the key
+     * @return the key's hash
+     */
+    static long hash(final String key)
+    {
+        long hash = FNV_OFFSET;
+
+        for(int i = 0; i < key.length(); i++)
+        {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hashes an integer key to 64 bits.
+     *
+     * @param key the key
+     * @return the key's hash
+     */
+    static long hash(final int key)
+    {
+        return mix(FNV_OFFSET ^ key);
+    }
+
+    /*
+     * Spreads the bits of a hash so that both halves are well distributed.
+     *
+     * @param hash the hash to mix
+     * @return the mixed hash
+     */
+    private static long mix(final long hash)
+    {
+        long mixed = hash;
+
+        mixed ^= mixed >>> MIX_SHIFT;
+        mixed *= MIX_MULTIPLIER;
+        mixed ^= mixed >>> MIX_SHIFT;
+        return mixed;
+    }
+}
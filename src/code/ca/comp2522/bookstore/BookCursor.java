@@ -0,0 +1,264 @@
+package ca.comp2522.bookstore;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazy, resumable cursor over the literature in a bookstore.
+ * Matching items are found one at a time as the cursor is advanced, so no result list is
+ * materialized. A cursor can be stopped at any point and later resumed from its continuation token.
+ * A token records the bookstore's modification count as well as the position, so a token issued
+ * before items were removed or replaced is rejected rather than silently skipping or repeating items.
+ * It also records which query it came from, so it cannot be used to resume a different query.
+ *
+ * @param <T> the type of literature returned by the cursor, which extends Literature
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class BookCursor<T extends Literature> implements Iterator<T>
+{
+
+    private static final int    START_POSITION  = 0; // Position of the first item in the source
+    private static final int    TOKEN_RADIX     = 36; // Radix used to encode continuation tokens
+    private static final String TOKEN_PREFIX    = "c"; // Marks a string as a cursor continuation token
+    private static final char   TOKEN_SEPARATOR = '.'; // Separates the fields of a token
+    private static final int    TOKEN_FIELDS    = 3; // Position, modification count and query hash
+
+    private final List<T>              source; // The items scanned by the cursor
+    private final Predicate<? super T> filter; // Items must pass this filter to be returned
+    private final String               query; // Describes the filter, so tokens cannot resume another query
+    private final int                  modificationCount; // The source's modification count when the cursor was made
+    private       int                  scanPosition; // Index of the next item to examine
+    private       int                  resumePosition; // Index just after the last item returned
+    private       T                    nextMatch; // The next matching item, if already found
+    private       BooleanSupplier      stopCondition; // Ends the scan early once it returns true
+
+    /**
+     * Constructs a new BookCursor that starts at the given position of the source.
+     *
+     * @param source            the items to scan
+     * @param filter            the filter that items must pass to be returned
+     * @param query             a description of the filter and its arguments, such as "length:12"
+     * @param startPosition     the index of the first item to examine
+     * @param modificationCount the source's current modification count
+     */
+    BookCursor(final List<T> source,
+               final Predicate<? super T> filter,
+               final String query,
+               final int startPosition,
+               final int modificationCount)
+    {
+        if(startPosition < START_POSITION)
+        {
+            throw new IllegalArgumentException("Start position cannot be negative");
+        }
+
+        this.source            = source;
+        this.filter            = filter;
+        this.query             = query;
+        this.modificationCount = modificationCount;
+        this.scanPosition      = startPosition;
+        this.resumePosition    = startPosition;
+        this.nextMatch         = null;
+        this.stopCondition     = () -> false;
+    }
+
+    /**
+     * Constructs a new BookCursor that resumes from the given continuation token.
+     *
+     * @param source            the items to scan
+     * @param filter            the filter that items must pass to be returned
+     * @param query             a description of the filter and its arguments, such as "length:12"
+     * @param token             a token from {@link #getContinuationToken()}, or null to start at the beginning
+     * @param modificationCount the source's current modification count
+     */
+    BookCursor(final List<T> source,
+               final Predicate<? super T> filter,
+               final String query,
+               final String token,
+               final int modificationCount)
+    {
+        this(source, filter, query, decodeToken(token, query, modificationCount), modificationCount);
+    }
+
+    /*
+     * Decodes a continuation token into the position it refers to, checking that it was issued by
+     * the same query and that the source has not had items removed or replaced since.
+     *
+     * @param token             the token to decode, or null for the beginning
+     * @param query             the description of the query resuming from the token
+     * @param modificationCount the source's current modification count
+     * @return the position encoded in the token
+     */
+    private static int decodeToken(final String token, final String query, final int modificationCount)
+    {
+        final String[] fields;
+        final int      position;
+        final int      tokenCount;
+        final int      tokenQuery;
+
+        if(token == null)
+        {
+            return START_POSITION;
+        }
+
+        fields = token.substring(Math.min(TOKEN_PREFIX.length(), token.length()))
+                      .split(Pattern.quote(String.valueOf(TOKEN_SEPARATOR)), -1);
+        if(!token.startsWith(TOKEN_PREFIX) || fields.length != TOKEN_FIELDS)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+
+        try
+        {
+            position   = Integer.parseInt(fields[0], TOKEN_RADIX);
+            tokenCount = Integer.parseInt(fields[1], TOKEN_RADIX);
+            tokenQuery = Integer.parseInt(fields[2], TOKEN_RADIX);
+        }
+        catch(final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+
+        if(position < START_POSITION)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        if(tokenQuery != query.hashCode())
+        {
+            throw new IllegalArgumentException("Continuation token belongs to a different query: " + token);
+        }
+        if(tokenCount != modificationCount)
+        {
+            throw new IllegalArgumentException("Stale continuation token, the bookstore has changed: " + token);
+        }
+        return position;
+    }
+
+    /**
+     * Checks if the cursor has another matching item.
+     *
+     * @return true if another item matches, false otherwise
+     */
+    @Override
+    public boolean hasNext()
+    {
+        while(nextMatch == null && scanPosition < source.size() && !stopCondition.getAsBoolean())
+        {
+            final T candidate = source.get(scanPosition);
+            scanPosition++;
+
+            if(filter.test(candidate))
+            {
+                nextMatch = candidate;
+            }
+        }
+        return nextMatch != null;
+    }
+
+    /**
+     * Makes the cursor stop scanning as soon as the condition returns true, checked before each
+     * item is examined. Once stopped, the cursor reports no further items even though the rest of
+     * the source was not scanned, so a stopped cursor's continuation token must not be relied on.
+     *
+     * @param condition returns true once the scan should end
+     * @return this cursor
+     */
+    BookCursor<T> stopWhen(final BooleanSupplier condition)
+    {
+        stopCondition = condition;
+        return this;
+    }
+
+    /**
+     * Returns the next matching item and advances the cursor.
+     *
+     * @return the next matching item
+     */
+    @Override
+    public T next()
+    {
+        final T match;
+
+        if(!hasNext())
+        {
+            throw new NoSuchElementException("No more matching items");
+        }
+
+        match          = nextMatch;
+        nextMatch      = null;
+        resumePosition = scanPosition;
+        return match;
+    }
+
+    /**
+     * Returns up to the given number of matching items and advances the cursor past them.
+     *
+     * @param pageSize the maximum number of items to return
+     * @return the next page of matching items, which is empty once the cursor is exhausted
+     */
+    public List<T> nextPage(final int pageSize)
+    {
+        final List<T> page;
+
+        if(pageSize <= 0)
+        {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+
+        page = new ArrayList<>(Math.min(pageSize, source.size()));
+        while(page.size() < pageSize && hasNext())
+        {
+            page.add(next());
+        }
+        return page;
+    }
+
+    /**
+     * Returns an opaque token from which a new cursor for the same query can resume just after the
+     * last item returned. To decide whether to return null, this scans ahead for the next match,
+     * which may mean reading the rest of the book list when no further item matches.
+     *
+     * @return the continuation token, or null if there are no more matching items
+     */
+    public String getContinuationToken()
+    {
+        if(!hasNext())
+        {
+            return null;
+        }
+        return TOKEN_PREFIX + Integer.toString(resumePosition, TOKEN_RADIX)
+               + TOKEN_SEPARATOR + Integer.toString(modificationCount, TOKEN_RADIX)
+               + TOKEN_SEPARATOR + Integer.toString(query.hashCode(), TOKEN_RADIX);
+    }
+
+    /**
+     * Returns a spliterator over the remaining matching items.
+     *
+     * @return a spliterator that advances this cursor
+     */
+    public Spliterator<T> spliterator()
+    {
+        return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Returns a sequential stream over the remaining matching items.
+     *
+     * @return a stream that advances this cursor
+     */
+    public Stream<T> stream()
+    {
+        return StreamSupport.stream(spliterator(), false);
+    }
+}
@@ -0,0 +1,42 @@
+package ca.comp2522.bookstore;
+
+import java.util.function.Function;
+
+/**
+ * Common grouping keys for {@link BookStore#groupBy(Function)}.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public final class BookGroupings
+{
+
+    /**
+     * Groups books by the first year of their decade of publication (e.g., 1980 for 1987).
+     */
+    public static final Function<Literature, Integer> DECADE =
+        book -> book.getYearPublished() - (book.getYearPublished() % BookStore.DECADE_IN_YEARS);
+
+    /**
+     * Groups books by their year of publication.
+     */
+    public static final Function<Literature, Integer> YEAR = Literature::getYearPublished;
+
+    /**
+     * Groups books by their concrete type, such as Novel, Magazine or ComicBook.
+     */
+    public static final Function<Literature, String> TYPE = book -> book.getClass().getSimpleName();
+
+    /**
+     * Groups books by their author.
+     */
+    public static final Function<Literature, String> AUTHOR = Literature::getAuthor;
+
+    /*
+     * Prevents instantiation of this utility class.
+     */
+    private BookGroupings()
+    {
+    }
+}
@@ -0,0 +1,177 @@
+package ca.comp2522.bookstore;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * A {@link Flow.Publisher} that streams query results from a lazy scan of the bookstore.
+ * Each subscriber gets its own scan, which only advances while the subscriber has outstanding demand.
+ * The scan is given a check that turns true when the subscription is cancelled, so a scan already
+ * searching for the next match stops there rather than reading the rest of the book list. The end of the scan is found the same way, so a
+ * subscriber that has received every match sees completion once it requests more (a subscriber that
+ * keeps requesting one item at a time sees it straight after the last item). Items are delivered on
+ * the given executor.
+ * <p>
+ * As with any iterator over the book list, the bookstore must not be modified while a
+ * subscription is active.
+ *
+ * @param <R> the type of item published
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class BookPublisher<R> implements Flow.Publisher<R>
+{
+
+    private final Function<BooleanSupplier, ? extends Iterator<? extends R>> scanFactory; // Starts a new scan for each subscriber
+    private final Executor                                                   executor; // Runs the delivery to subscribers
+
+    /**
+     * Constructs a new BookPublisher.
+     *
+     * @param scanFactory starts a new lazy scan for each subscriber, given a check that returns true
+     *                    once that subscriber has cancelled and the scan should stop
+     * @param executor    the executor on which items are delivered
+     */
+    BookPublisher(final Function<BooleanSupplier, ? extends Iterator<? extends R>> scanFactory,
+                  final Executor executor)
+    {
+        this.scanFactory = scanFactory;
+        this.executor    = executor;
+    }
+
+    /**
+     * Subscribes to the results. Nothing is scanned until the subscriber requests items.
+     *
+     * @param subscriber the subscriber to deliver results to
+     */
+    @Override
+    public void subscribe(final Flow.Subscriber<? super R> subscriber)
+    {
+        final ScanSubscription subscription;
+
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null");
+        subscription = new ScanSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /*
+     * A subscription that advances its scan only while the subscriber has outstanding demand.
+     * Delivery runs in a drain loop on the executor; the work-in-progress counter ensures only one
+     * drain runs at a time, so signals to the subscriber are never concurrent.
+     */
+    private final class ScanSubscription implements Flow.Subscription
+    {
+        private final    Flow.Subscriber<? super R> subscriber; // Receives the results
+        private final    Iterator<? extends R>      scan; // The lazy scan producing results
+        private final    AtomicLong                 demand; // Items requested but not yet delivered
+        private final    AtomicInteger              workInProgress; // Pending drain requests
+        private volatile boolean                    cancelled; // True once no more signals may be sent
+        private volatile Throwable                  badRequest; // Error for a non-positive request, if any
+
+        private ScanSubscription(final Flow.Subscriber<? super R> subscriber)
+        {
+            this.subscriber     = subscriber;
+            this.scan           = scanFactory.apply(() -> cancelled);
+            this.demand         = new AtomicLong();
+            this.workInProgress = new AtomicInteger();
+            this.cancelled      = false;
+            this.badRequest     = null;
+        }
+
+        @Override
+        public void request(final long n)
+        {
+            if(n <= 0)
+            {
+                badRequest = new IllegalArgumentException("Request must be positive, was " + n);
+            }
+            else
+            {
+                demand.getAndAccumulate(n, (current, added) ->
+                {
+                    final long total = current + added;
+                    return total < 0 ? Long.MAX_VALUE : total;
+                });
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+        }
+
+        private void scheduleDrain()
+        {
+            if(workInProgress.getAndIncrement() == 0)
+            {
+                executor.execute(this::drain);
+            }
+        }
+
+        /*
+         * Delivers items while there is demand, then completes if the scan is exhausted while demand remains.
+         */
+        private void drain()
+        {
+            int missed = 1;
+
+            do
+            {
+                long delivered = 0;
+
+                while(!cancelled)
+                {
+                    if(badRequest != null)
+                    {
+                        cancelled = true;
+                        subscriber.onError(badRequest);
+                        return;
+                    }
+
+                    if(delivered == demand.get())
+                    {
+                        break;
+                    }
+
+                    try
+                    {
+                        if(!scan.hasNext())
+                        {
+                            if(cancelled)
+                            {
+                                return;
+                            }
+                            cancelled = true;
+                            subscriber.onComplete();
+                            return;
+                        }
+                        subscriber.onNext(scan.next());
+                    }
+                    catch(final RuntimeException e)
+                    {
+                        cancelled = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+                    delivered++;
+                }
+
+                if(delivered > 0 && demand.get() != Long.MAX_VALUE)
+                {
+                    demand.addAndGet(-delivered);
+                }
+                missed = workInProgress.addAndGet(-missed);
+            }
+            while(missed != 0);
+        }
+    }
+}
@@ -1,6 +1,15 @@
 package ca.comp2522.bookstore;
 
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelReader;
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelWriter;
+
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 /**
  * Represents a bookstore that manages a collection of literature works.
@@ -16,12 +25,24 @@ import java.util.*;
 public class BookStore<T extends Literature>
 {
 
-    private static final int            BEGINNING_COUNT = 0; // Initial count for various operations
-    private static final int            DECADE_IN_YEARS = 10; // Represents the number of years in a decade
-    private static final int            PERCENT_SHIFT   = 100; // Used to calculate percentages
-    private final        String         storeName; // The name of the bookstore
-    private final        List<T>        bookList; // List to hold literature items in the bookstore
-    private final        Map<String, T> bookMap; // Map to associate book titles with their respective literature objects
+    static final         int              BEGINNING_COUNT = 0; // Initial count for various operations
+    static final         int              DECADE_IN_YEARS = 10; // Represents the number of years in a decade
+    static final         int              PERCENT_SHIFT   = 100; // Used to calculate percentages
+    private static final int              NOT_FOUND       = -1; // Position returned when no duplicate is held
+    private static final String           LENGTH_QUERY    = "length:"; // Names title-length cursors in their tokens
+    private static final String           CONTAINS_QUERY  = "contains:"; // Names title-search cursors in their tokens
+    private static final String           NOVELS_QUERY    = "novels"; // Names the novel cursor in its tokens
+    private final        String           storeName; // The name of the bookstore
+    private final        List<T>          bookList; // List to hold literature items in the bookstore
+    private final        Map<String, T>   bookMap; // Map to associate book titles with their respective literature objects
+    private final        YearColumn       yearColumn; // Years of the books in the book list, in list order
+    private final        TitleTrie<T>     titleTrie; // Prefix index over the titles in the book list
+    private final        ExistenceFilters existenceFilters; // Fast negative checks for titles, authors and years
+    private final        FingerprintIndex fingerprintIndex; // Position of each distinct work in the book list
+    private              DuplicatePolicy  duplicatePolicy; // What addItem does with a duplicate work
+    private              int              duplicateCount; // Duplicate works offered to addItem so far
+    private              int              modificationCount; // Removals and replacements so far, which invalidate cursor tokens
+    private              int              changeCount; // Changes of any kind to the book list so far
 
     /**
      * Inner class that holds information about the bookstore.
@@ -71,27 +92,311 @@ public class BookStore<T extends Literature>
      */
     public BookStore(final String storeName)
     {
-        this.storeName = storeName;
-        this.bookList  = new ArrayList<>();
-        this.bookMap   = new HashMap<>();
-        populateComics();
-        populateMagazines();
-        populateNovels();
-        populateBookMap();
-
+        this(storeName, true);
 
         System.out.println("BookStore: " + storeName + "\n");
 
     }
 
+    /**
+     * Constructs a new BookStore with the given name, optionally initializing the sample book collection.
+     *
+     * @param storeName       the name of the bookstore
+     * @param populateSamples true to add the sample comics, magazines and novels, false to start empty
+     */
+    BookStore(final String storeName, final boolean populateSamples)
+    {
+        this.storeName         = storeName;
+        this.bookList          = new ArrayList<>();
+        this.bookMap           = new HashMap<>();
+        this.yearColumn        = new YearColumn();
+        this.titleTrie         = new TitleTrie<>();
+        this.existenceFilters  = new ExistenceFilters();
+        this.fingerprintIndex  = new FingerprintIndex();
+        this.duplicatePolicy   = DuplicatePolicy.KEEP_ALL;
+        this.duplicateCount    = BEGINNING_COUNT;
+        this.modificationCount = BEGINNING_COUNT;
+        this.changeCount       = BEGINNING_COUNT;
+        if(populateSamples)
+        {
+            populateComics();
+            populateMagazines();
+            populateNovels();
+            populateBookMap();
+        }
+    }
+
     /**
      * Adds a literature item to the bookstore's collection.
+     * If the item duplicates a work already in the collection (same type, author, year and title,
+     * ignoring case and extra whitespace in the title), it is counted and handled by the duplicate policy.
      *
      * @param item the literature item to add
+     * @return true if the item is now in the collection, false if it was rejected as a duplicate
      */
-    public void addItem(final T item)
+    public boolean addItem(final T item)
     {
+        final long fingerprint = FingerprintIndex.fingerprint(item);
+        final int  duplicate   = fingerprintIndex.find(fingerprint, item, bookList);
+
+        if(duplicate != NOT_FOUND)
+        {
+            duplicateCount++;
+            if(duplicatePolicy == DuplicatePolicy.REJECT)
+            {
+                return false;
+            }
+            if(duplicatePolicy == DuplicatePolicy.REPLACE)
+            {
+                replaceItem(duplicate, item);
+                return true;
+            }
+        }
+
+        changeCount++;
         bookList.add(item);
+        yearColumn.add(item.getYearPublished());
+        titleTrie.add(item);
+        existenceFilters.add(item, bookList);
+        fingerprintIndex.add(fingerprint, bookList.size() - 1);
+        return true;
+    }
+
+    /**
+     * Adds a batch of literature items, applying the duplicate policy to each in turn.
+     * Duplicates within the batch are detected as well as duplicates of items already held.
+     *
+     * @param items the literature items to add
+     * @return the number of items in the batch that were duplicates
+     */
+    public int addItems(final Collection<? extends T> items)
+    {
+        final int duplicatesBefore = duplicateCount;
+
+        if(bookList instanceof ArrayList<T> list)
+        {
+            list.ensureCapacity(bookList.size() + items.size());
+        }
+        for(final T item : items)
+        {
+            addItem(item);
+        }
+        return duplicateCount - duplicatesBefore;
+    }
+
+    /**
+     * Sets what is done with items that duplicate a work already in the collection.
+     * The default is {@link DuplicatePolicy#KEEP_ALL}.
+     *
+     * @param duplicatePolicy the policy for later additions
+     */
+    public void setDuplicatePolicy(final DuplicatePolicy duplicatePolicy)
+    {
+        if(duplicatePolicy == null)
+        {
+            throw new IllegalArgumentException("Duplicate policy cannot be null");
+        }
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    /**
+     * Returns the policy applied to duplicate items.
+     *
+     * @return the duplicate policy
+     */
+    public DuplicatePolicy getDuplicatePolicy()
+    {
+        return duplicatePolicy;
+    }
+
+    /**
+     * Returns the number of duplicate items offered to the bookstore so far, whatever the policy did with them.
+     *
+     * @return the duplicate count
+     */
+    public int getDuplicateCount()
+    {
+        return duplicateCount;
+    }
+
+    /*
+     * Sets the duplicate count, as when restoring a bookstore from a snapshot.
+     *
+     * @param duplicateCount the duplicate count
+     */
+    void restoreDuplicateCount(final int duplicateCount)
+    {
+        this.duplicateCount = duplicateCount;
+    }
+
+    /*
+     * Puts an item in place of the duplicate at the given position, updating every index.
+     *
+     * @param index the position of the duplicate in the book list
+     * @param item  the item replacing it
+     */
+    private void replaceItem(final int index, final T item)
+    {
+        final T replaced = bookList.set(index, item);
+
+        modificationCount++;
+        changeCount++;
+
+        yearColumn.set(index, item.getYearPublished());
+        titleTrie.remove(replaced);
+        titleTrie.add(item);
+        if(bookMap.remove(replaced.getTitle(), replaced))
+        {
+            bookMap.put(item.getTitle(), item);
+        }
+        existenceFilters.add(item, bookList);
+    }
+
+    /**
+     * Removes a literature item from the bookstore's collection.
+     *
+     * @param item the literature item to remove
+     * @return true if the item was in the collection, false otherwise
+     */
+    public boolean removeItem(final T item)
+    {
+        final int index = bookList.indexOf(item);
+
+        if(index < 0)
+        {
+            return false;
+        }
+
+        modificationCount++;
+        changeCount++;
+        bookList.remove(index);
+        yearColumn.remove(index);
+        bookMap.remove(item.getTitle(), item);
+        titleTrie.remove(item);
+        existenceFilters.requestRebuild(bookList);
+        fingerprintIndex.remove(index, item, bookList);
+        return true;
+    }
+
+    /**
+     * Changes a held item's title, author or year, keeping every index current. A held item must
+     * only be changed this way: a setter called directly leaves the indexes describing the old values.
+     * The change is applied between taking the item out of the indexes and putting it back, so if
+     * the change throws (as the setters do for invalid values) the item is indexed as it is left.
+     * Finding the item's positions costs one pass over the book list.
+     *
+     * @param item   the held item to change
+     * @param change the action that changes the item, for example {@code magazine -> magazine.setTitle("Wired")}
+     * @return true if the item is held and the change was applied, false if the item is not in the collection
+     */
+    public boolean updateItem(final T item, final Consumer<? super T> change)
+    {
+        final List<Integer> positions = new ArrayList<>();
+
+        for(int i = 0; i < bookList.size(); i++)
+        {
+            if(bookList.get(i) == item)
+            {
+                positions.add(i);
+            }
+        }
+        if(positions.isEmpty())
+        {
+            return false;
+        }
+
+        fingerprintIndex.forget(item, bookList);
+        for(int i = 0; i < positions.size(); i++)
+        {
+            titleTrie.remove(item);
+        }
+        try
+        {
+            change.accept(item);
+        }
+        finally
+        {
+            changeCount++;
+            for(final int position : positions)
+            {
+                yearColumn.set(position, item.getYearPublished());
+                titleTrie.add(item);
+            }
+            fingerprintIndex.add(FingerprintIndex.fingerprint(item), positions.get(0));
+            existenceFilters.add(item, bookList);
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the title map has a book with exactly this title.
+     * Most titles that are not present are rejected by a Bloom filter without probing the map.
+     * <p>
+     * The title map is separate from the book list: it only holds the sample books mapped when the
+     * store is built and entries restored from a snapshot. Books added with {@link #addItem} are not
+     * mapped, so this returns false for them; use {@link #completeTitle(String, int)} to search every
+     * held title.
+     *
+     * @param title the title to look up
+     * @return true if a book with the title is mapped, false otherwise
+     */
+    public boolean containsTitle(final String title)
+    {
+        return existenceFilters.mightContainTitle(title) && bookMap.containsKey(title);
+    }
+
+    /**
+     * Checks if there is a book by exactly this author.
+     * Most authors that are not present are rejected by a Bloom filter without scanning the books.
+     *
+     * @param author the author to look for
+     * @return true if a book by the author exists, false otherwise
+     */
+    public boolean hasBookBy(final String author)
+    {
+        if(!existenceFilters.mightContainAuthor(author))
+        {
+            return false;
+        }
+
+        for(final T book : bookList)
+        {
+            if(book.getAuthor().equals(author))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns up to the given number of books whose titles start with the prefix (case-insensitive),
+     * in alphabetical order of title.
+     *
+     * @param prefix the title prefix to complete
+     * @param limit  the maximum number of books to return
+     * @return the matching books
+     */
+    public List<T> completeTitle(final String prefix, final int limit)
+    {
+        return titleTrie.complete(prefix, limit);
+    }
+
+    /**
+     * Returns the top books, by the given ranking, whose titles start with the prefix (case-insensitive).
+     * For example, {@code Comparator.comparingInt(Literature::getYearPublished)} ranks the oldest first.
+     * Every book under the prefix is ranked, so short prefixes cost time linear in their matches.
+     *
+     * @param prefix  the title prefix to complete
+     * @param limit   the maximum number of books to return
+     * @param ranking orders the books, best first
+     * @return the best matching books, in ranking order
+     */
+    public List<T> completeTitle(final String prefix,
+                                 final int limit,
+                                 final Comparator<? super T> ranking)
+    {
+        return titleTrie.complete(prefix, limit, ranking);
     }
 
     /**
@@ -297,16 +602,177 @@ public class BookStore<T extends Literature>
      * Prints book titles in alphabetical order.
      */
     private void printTitlesInAlphaOrder()
+    {
+        forEachTitleInAlphaOrder(System.out::println);
+    }
+
+    /*
+     * Passes each book title to the given action in alphabetical order (case-insensitive).
+     *
+     * @param action the action to perform on each title
+     */
+    void forEachTitleInAlphaOrder(final Consumer<String> action)
     {
         List<T> sortedBooks = new ArrayList<>(bookList);
         sortedBooks.sort(Comparator.comparing(book -> book.getTitle().toLowerCase()));
 
         for(T book : sortedBooks)
         {
-            System.out.println(book.getTitle());
+            action.accept(book.getTitle());
+        }
+    }
+
+    /**
+     * Passes every title to the action in case-insensitive alphabetical order, holding at most the
+     * given number of titles in memory. Larger catalogs are sorted in runs spilled to temporary files
+     * and merged back together. Titles that compare equal keep their insertion order, the same order
+     * in which the titles are printed alphabetically.
+     *
+     * @param action     the action to perform on each title
+     * @param maxRunSize the most titles to sort in memory at once
+     * @throws IOException if the temporary files cannot be written or read
+     */
+    public void exportTitlesInAlphaOrder(final Consumer<String> action,
+                                         final int maxRunSize) throws IOException
+    {
+        try(ExternalSorter sorter = new ExternalSorter(maxRunSize))
+        {
+            for(final T book : bookList)
+            {
+                sorter.add(book.getTitle().toLowerCase(), book.getTitle());
+            }
+            sorter.forEachSorted(action);
+        }
+    }
+
+    /**
+     * Passes every book in the map to the action as text, ordered by map key, holding at most the
+     * given number of books in memory. This is the bounded-memory version of printing the sorted books.
+     *
+     * @param action     the action to perform on each book's text
+     * @param maxRunSize the most books to sort in memory at once
+     * @throws IOException if the temporary files cannot be written or read
+     */
+    public void exportSortedBooks(final Consumer<String> action,
+                                  final int maxRunSize) throws IOException
+    {
+        try(ExternalSorter sorter = new ExternalSorter(maxRunSize))
+        {
+            for(final Map.Entry<String, T> entry : bookMap.entrySet())
+            {
+                sorter.add(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+            sorter.forEachSorted(action);
         }
     }
 
+    /*
+     * Returns the name of the bookstore.
+     *
+     * @return the store name
+     */
+    String getStoreName()
+    {
+        return storeName;
+    }
+
+    /*
+     * Returns a read-only view of the book list.
+     *
+     * @return the books in insertion order
+     */
+    List<T> getBookList()
+    {
+        return Collections.unmodifiableList(bookList);
+    }
+
+    /*
+     * Returns a read-only view of the title map.
+     *
+     * @return the map of titles to books
+     */
+    Map<String, T> getBookMap()
+    {
+        return Collections.unmodifiableMap(bookMap);
+    }
+
+    /*
+     * Maps a title to a book, as when restoring the title map from a snapshot.
+     *
+     * @param title the title key
+     * @param book  the book to map it to
+     */
+    void putBookMapping(final String title, final T book)
+    {
+        bookMap.put(title, book);
+    }
+
+    /*
+     * Appends books restored from a snapshot without indexing them; readIndexes must follow.
+     *
+     * @param items the restored books, in list order
+     */
+    void restoreItems(final List<? extends T> items)
+    {
+        if(!bookList.isEmpty())
+        {
+            throw new IllegalStateException("Books can only be restored into an empty bookstore");
+        }
+
+        changeCount++;
+        bookList.addAll(items);
+        for(final T item : items)
+        {
+            yearColumn.add(item.getYearPublished());
+        }
+    }
+
+    /*
+     * Writes the title trie, existence filters and fingerprint table to a snapshot.
+     *
+     * @param out        the snapshot writer
+     * @param positionOf returns the list position of a book
+     */
+    void writeIndexes(final ChannelWriter out, final ToIntFunction<? super T> positionOf) throws IOException
+    {
+        titleTrie.writeTo(out, positionOf);
+        existenceFilters.writeTo(out);
+        fingerprintIndex.writeTo(out);
+    }
+
+    /*
+     * Reads the indexes written by writeIndexes for the books already restored by restoreItems.
+     *
+     * @param in the snapshot reader
+     */
+    void readIndexes(final ChannelReader in) throws IOException
+    {
+        titleTrie.readFrom(in, bookList);
+        existenceFilters.readFrom(in, bookList);
+        fingerprintIndex.readFrom(in, bookList.size());
+    }
+
+    /*
+     * Returns how many times the book list has changed, including additions and title, author or
+     * year updates. A result computed from the list can be reused while this count is unchanged.
+     *
+     * @return the number of changes so far
+     */
+    int getChangeCount()
+    {
+        return changeCount;
+    }
+
+    /*
+     * Returns the number of items in the bookstore.
+     *
+     * @return the number of items in the book list
+     */
+    int getItemCount()
+    {
+        return bookList.size();
+    }
+
     /*
      * Prints all books published in the specified decade.
      *
@@ -317,19 +783,24 @@ public class BookStore<T extends Literature>
         final int START_DECADE = decade - (decade % 10);
         final int END_DECADE   = START_DECADE + DECADE_IN_YEARS;
 
-        for(final T book : bookList)
-        {
-            if(book.getYearPublished() >= START_DECADE && book.getYearPublished() < END_DECADE)
-            {
-                System.out.println(book.getTitle());
-            }
-        }
+        yearColumn.forEachInRange(START_DECADE, END_DECADE - 1,
+                                  index -> System.out.println(bookList.get(index).getTitle()));
     }
 
     /*
      * Prints the longest book title in the collection.
      */
     private void getLongest()
+    {
+        System.out.println(findLongestTitle());
+    }
+
+    /*
+     * Finds the longest book title in the collection.
+     *
+     * @return the longest title
+     */
+    String findLongestTitle()
     {
         String longestTitle = bookList.get(0).getTitle();
 
@@ -340,7 +811,7 @@ public class BookStore<T extends Literature>
                 longestTitle = book.getTitle();
             }
         }
-        System.out.println(longestTitle);
+        return longestTitle;
     }
 
     /*
@@ -349,16 +820,9 @@ public class BookStore<T extends Literature>
      * @param year the year to check
      * @return true if a book was published in the specified year, false otherwise
      */
-    private boolean isThereABookWrittenIn(final int year)
+    boolean isThereABookWrittenIn(final int year)
     {
-        for(final T book : bookList)
-        {
-            if(book.getYearPublished() == year)
-            {
-                return true;
-            }
-        }
-        return false;
+        return existenceFilters.mightContainYear(year) && yearColumn.contains(year);
     }
 
     /*
@@ -367,7 +831,7 @@ public class BookStore<T extends Literature>
      * @param word the word to search for in book titles
      * @return the number of books containing the word
      */
-    private int howManyBooksContain(final String word)
+    int howManyBooksContain(final String word)
     {
         int bookCount = BEGINNING_COUNT;
 
@@ -388,18 +852,21 @@ public class BookStore<T extends Literature>
      * @param last  the ending year
      * @return the percentage of books published between the specified years
      */
-    private int whichPercentWrittenBetween(final int first, final int last)
+    int whichPercentWrittenBetween(final int first, final int last)
     {
-        int bookCount = BEGINNING_COUNT;
+        return countWrittenBetween(first, last) * PERCENT_SHIFT / bookList.size();
+    }
 
-        for(final T book : bookList)
-        {
-            if(book.getYearPublished() >= first && book.getYearPublished() <= last)
-            {
-                bookCount++;
-            }
-        }
-        return bookCount * PERCENT_SHIFT / bookList.size();
+    /*
+     * Counts the books published between the specified years (inclusive).
+     *
+     * @param first the starting year
+     * @param last  the ending year
+     * @return the number of books published between the specified years
+     */
+    int countWrittenBetween(final int first, final int last)
+    {
+        return yearColumn.countInRange(first, last);
     }
 
     /*
@@ -407,18 +874,9 @@ public class BookStore<T extends Literature>
      *
      * @return the oldest book
      */
-    private T getOldestBook()
+    T getOldestBook()
     {
-        T oldestBook = bookList.get(0); // Initialize with the first book
-
-        for(final T book : bookList)
-        {
-            if(book.getYearPublished() < oldestBook.getYearPublished())
-            {
-                oldestBook = book;
-            }
-        }
-        return oldestBook;
+        return bookList.get(yearColumn.indexOfMin());
     }
 
     /*
@@ -427,19 +885,134 @@ public class BookStore<T extends Literature>
      * @param titleLength the length of the title to search for
      * @return a list of books with titles of the specified length
      */
-    private List<T> getBooksThisLength(final int titleLength)
+    List<T> getBooksThisLength(final int titleLength)
     {
-        final List<T> booksOfLength;
+        final List<T>       booksOfLength;
+        final BookCursor<T> cursor;
+
         booksOfLength = new ArrayList<>();
+        cursor        = findBooksThisLength(titleLength, null);
+        cursor.forEachRemaining(booksOfLength::add);
+        return booksOfLength;
+    }
+
+    /**
+     * Returns a lazy cursor over the books whose titles are of the specified length.
+     *
+     * @param titleLength the length of the title to search for
+     * @param token       a continuation token from an earlier cursor, or null to start at the beginning
+     * @return a cursor over books with titles of the specified length
+     * @throws IllegalArgumentException if the token is malformed, came from a different query, or is stale
+     */
+    public BookCursor<T> findBooksThisLength(final int titleLength, final String token)
+    {
+        return new BookCursor<>(bookList, book -> book.getTitle().length() == titleLength,
+                                LENGTH_QUERY + titleLength, token, modificationCount);
+    }
+
+    /**
+     * Returns a lazy cursor over the books whose titles contain the specified word (case-insensitive).
+     *
+     * @param word  the word to search for in book titles
+     * @param token a continuation token from an earlier cursor, or null to start at the beginning
+     * @return a cursor over books containing the word
+     * @throws IllegalArgumentException if the token is malformed, came from a different query, or is stale
+     */
+    public BookCursor<T> findBooksContaining(final String word, final String token)
+    {
+        final String upperWord = word.toUpperCase();
+        return new BookCursor<>(bookList, book -> book.getTitle().toUpperCase().contains(upperWord),
+                                CONTAINS_QUERY + upperWord, token, modificationCount);
+    }
+
+    /**
+     * Computes statistics for each group of books in a single pass over the collection.
+     * See {@link BookGroupings} for decade, year, type and author keys.
+     *
+     * @param classifier maps each book to the key of its group
+     * @param <K>        the type of the group keys
+     * @return the statistics of each group, by key
+     */
+    public <K> Map<K, GroupStats> groupBy(final Function<? super T, ? extends K> classifier)
+    {
+        final Map<K, GroupStats> groups = new HashMap<>();
 
         for(final T book : bookList)
         {
-            if(book.getTitle().length() == titleLength)
-            {
-                booksOfLength.add(book);
-            }
+            groups.computeIfAbsent(classifier.apply(book), key -> new GroupStats()).accept(book);
         }
-        return booksOfLength;
+        return groups;
+    }
+
+    /**
+     * Computes statistics for each group of books in parallel. Each worker aggregates its own part
+     * of the collection, and the partial statistics are then merged.
+     *
+     * @param classifier maps each book to the key of its group
+     * @param <K>        the type of the group keys
+     * @return the statistics of each group, by key
+     */
+    public <K> Map<K, GroupStats> groupByParallel(final Function<? super T, ? extends K> classifier)
+    {
+        return bookList.parallelStream()
+                       .collect(HashMap::new,
+                                (Map<K, GroupStats> groups, T book) ->
+                                    groups.computeIfAbsent(classifier.apply(book), key -> new GroupStats()).accept(book),
+                                (left, right) ->
+                                    right.forEach((key, stats) -> left.merge(key, stats, GroupStats::merge)));
+    }
+
+    /**
+     * Returns a publisher of the books whose titles are of the specified length.
+     * Each subscriber's scan advances only as its demand allows.
+     *
+     * @param titleLength the length of the title to search for
+     * @return a publisher of books with titles of the specified length
+     */
+    public Flow.Publisher<T> publishBooksThisLength(final int titleLength)
+    {
+        return new BookPublisher<>(cancelled -> findBooksThisLength(titleLength, null).stopWhen(cancelled),
+                                   ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns a publisher of the books whose titles contain the specified word (case-insensitive).
+     * Each subscriber's scan advances only as its demand allows.
+     *
+     * @param word the word to search for in book titles
+     * @return a publisher of books containing the word
+     */
+    public Flow.Publisher<T> publishBooksContaining(final String word)
+    {
+        return new BookPublisher<>(cancelled -> findBooksContaining(word, null).stopWhen(cancelled),
+                                   ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns a publisher of the novels in the bookstore's collection.
+     * Each subscriber's scan advances only as its demand allows.
+     *
+     * @return a publisher of novels
+     */
+    public Flow.Publisher<Novel> publishNovels()
+    {
+        return new BookPublisher<>(cancelled -> new BookCursor<>(bookList, book -> book instanceof Novel,
+                                                                 NOVELS_QUERY, null, modificationCount)
+                                                    .stopWhen(cancelled)
+                                                    .stream()
+                                                    .map(Novel.class::cast)
+                                                    .iterator(),
+                                   ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns a new batch of queries that will be answered in one shared pass over the books.
+     *
+     * @return an empty batch query over this bookstore
+     */
+    public BatchQuery<T> newBatchQuery()
+    {
+        return new BatchQuery<>(bookList);
     }
 
     /*
@@ -0,0 +1,643 @@
+package ca.comp2522.bookstore;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * An optional embedded HTTP service that shares one bookstore between many clients.
+ * Each request is handled on its own virtual thread when the running JDK supports them,
+ * falling back to a cached platform thread pool otherwise.
+ * <p>
+ * Queries take a shared read lock and {@code POST /books} takes the write lock, so any
+ * number of queries can run at once. While the store is served, its books are changed only through
+ * {@link #updateBook(Literature, Consumer)}, which takes the write lock too. Locks are only held while results are copied out of the
+ * bookstore, never while they are written to a client, so a slow client cannot hold up writers.
+ * List results are streamed one title per line, copied a page at a time; each page resumes from
+ * the previous page's continuation token. If the store has items removed or replaced between pages,
+ * the listing ends with a line starting {@code !error: } rather than skipping or repeating titles.
+ * The sorted listing is built once and reused until the store changes.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class BookStoreServer implements AutoCloseable
+{
+
+    private static final int    DEFAULT_PORT        = 8080; // Port used when none is given to main
+    private static final int    DEFAULT_BACKLOG     = 1024; // Connections queued while waiting to be accepted
+    private static final int    MIN_BACKLOG         = 1; // A server must queue at least one connection
+    private static final int    PAGE_SIZE           = 256; // Titles copied under the lock per page of a listing
+    private static final int    STOP_DELAY_SECONDS  = 1; // Time given to in-flight requests on close
+    private static final int    STATUS_OK           = 200;
+    private static final int    STATUS_BAD_REQUEST  = 400;
+    private static final int    STATUS_NOT_FOUND    = 404;
+    private static final int    STATUS_BAD_METHOD   = 405;
+    private static final int    STATUS_CONFLICT     = 409; // Sent when the duplicate policy rejects a book
+    private static final long   CHUNKED_LENGTH      = 0; // Response length that enables chunked streaming
+    private static final long   NO_BODY_LENGTH      = -1; // Response length for an empty body
+    private static final String GET                 = "GET";
+    private static final String POST                = "POST";
+    private static final String CONTENT_TYPE        = "Content-Type";
+    private static final String TEXT_PLAIN          = "text/plain; charset=utf-8";
+    private static final String VIRTUAL_THREADS     = "newVirtualThreadPerTaskExecutor";
+    private static final String PARAM_SEPARATOR     = "&";
+    private static final String KEY_VALUE_SEPARATOR = "=";
+    private static final String ERROR_LINE_PREFIX   = "!error: "; // Starts the last line of a listing that failed part-way
+
+    private final BookStore<Literature> store; // The shared bookstore being served
+    private final ReadWriteLock         lock; // Guards the bookstore against concurrent writes
+    private final ExecutorService       executor; // Runs one task per request
+    private final HttpServer            server; // The underlying JDK HTTP server
+    private final Object                sortedLock; // Guards the cached sorted listing
+    private       List<String>          sortedCache; // All titles in alphabetical order, or null until first asked for
+    private       int                   sortedChangeCount; // The store's change count when sortedCache was built
+
+    /*
+     * Handles a request whose parameters have already been parsed.
+     */
+    @FunctionalInterface
+    private interface QueryHandler
+    {
+        void handle(HttpExchange exchange, Map<String, String> params) throws IOException;
+    }
+
+    /*
+     * Opens a cursor over a listing's books, resuming from a continuation token or, if it is null, at the start.
+     */
+    @FunctionalInterface
+    private interface CursorQuery
+    {
+        BookCursor<Literature> open(String token);
+    }
+
+    /**
+     * Constructs a new BookStoreServer for the given bookstore, bound to the given port
+     * with the default connection backlog.
+     * The server does not accept requests until {@link #start()} is called.
+     *
+     * @param store the bookstore to serve
+     * @param port  the port to listen on, or 0 for any free port
+     * @throws IOException if the server cannot be bound
+     */
+    public BookStoreServer(final BookStore<Literature> store,
+                           final int port) throws IOException
+    {
+        this(store, port, DEFAULT_BACKLOG);
+    }
+
+    /**
+     * Constructs a new BookStoreServer for the given bookstore, bound to the given port.
+     * The server does not accept requests until {@link #start()} is called.
+     *
+     * @param store   the bookstore to serve
+     * @param port    the port to listen on, or 0 for any free port
+     * @param backlog the most incoming connections to queue while waiting to be accepted
+     * @throws IOException if the server cannot be bound
+     */
+    public BookStoreServer(final BookStore<Literature> store,
+                           final int port,
+                           final int backlog) throws IOException
+    {
+        if(backlog < MIN_BACKLOG)
+        {
+            throw new IllegalArgumentException("Backlog must be at least " + MIN_BACKLOG);
+        }
+
+        this.store      = store;
+        this.lock       = new ReentrantReadWriteLock();
+        this.executor   = newRequestExecutor();
+        this.server     = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.sortedLock = new Object();
+
+        server.setExecutor(executor);
+        server.createContext("/books", handler(POST, this::addBook));
+        server.createContext("/books/count", handler(GET, this::countBooksContaining));
+        server.createContext("/books/search", handler(GET, this::searchBooks));
+        server.createContext("/books/length", handler(GET, this::booksThisLength));
+        server.createContext("/books/oldest", handler(GET, this::oldestBook));
+        server.createContext("/books/sorted", handler(GET, this::sortedTitles));
+        server.createContext("/years/exists", handler(GET, this::bookWrittenIn));
+        server.createContext("/years/percent", handler(GET, this::percentWrittenBetween));
+    }
+
+    /*
+     * Creates a virtual-thread-per-task executor if the JDK has one, or a cached thread pool otherwise.
+     *
+     * @return the executor used to run requests
+     */
+    private static ExecutorService newRequestExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod(VIRTUAL_THREADS).invoke(null);
+        }
+        catch(final ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Changes a served book's title, author or year under the write lock, so no query sees the
+     * store's indexes part-way through the change.
+     *
+     * @param book   the served book to change
+     * @param change the action that changes the book
+     * @return true if the book is in the store and the change was applied, false otherwise
+     */
+    public boolean updateBook(final Literature book, final Consumer<? super Literature> change)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            return store.updateItem(book, change);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start()
+    {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the bound port
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server and its request executor.
+     */
+    @Override
+    public void close()
+    {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+    }
+
+    /*
+     * Wraps a query handler so that it only accepts the given method and exact path,
+     * and so that bad parameters are reported to the client.
+     *
+     * @param method the HTTP method the handler accepts
+     * @param query  the handler to run
+     * @return the wrapped handler
+     */
+    private static HttpHandler handler(final String method, final QueryHandler query)
+    {
+        return exchange ->
+        {
+            try
+            {
+                if(!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath()))
+                {
+                    exchange.sendResponseHeaders(STATUS_NOT_FOUND, NO_BODY_LENGTH);
+                }
+                else if(!exchange.getRequestMethod().equals(method))
+                {
+                    exchange.sendResponseHeaders(STATUS_BAD_METHOD, NO_BODY_LENGTH);
+                }
+                else
+                {
+                    query.handle(exchange, parseParams(exchange));
+                }
+            }
+            catch(final IllegalArgumentException e)
+            {
+                sendText(exchange, STATUS_BAD_REQUEST, e.getMessage());
+            }
+            finally
+            {
+                exchange.close();
+            }
+        };
+    }
+
+    /*
+     * Parses the URL query and, for POST requests, the form-encoded body into a parameter map.
+     *
+     * @param exchange the exchange to read
+     * @return the request parameters
+     * @throws IOException if the body cannot be read
+     */
+    private static Map<String, String> parseParams(final HttpExchange exchange) throws IOException
+    {
+        final Map<String, String> params = new HashMap<>();
+
+        addParams(params, exchange.getRequestURI().getRawQuery());
+        if(exchange.getRequestMethod().equals(POST))
+        {
+            try(InputStream body = exchange.getRequestBody())
+            {
+                addParams(params, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    /*
+     * Adds the decoded pairs of a URL-encoded string to the parameter map.
+     *
+     * @param params  the map to add to
+     * @param encoded the URL-encoded pairs, which may be null
+     */
+    private static void addParams(final Map<String, String> params, final String encoded)
+    {
+        if(encoded == null || encoded.isBlank())
+        {
+            return;
+        }
+
+        for(final String pair : encoded.split(PARAM_SEPARATOR))
+        {
+            final String[] keyValue = pair.split(KEY_VALUE_SEPARATOR, 2);
+            final String   value    = keyValue.length > 1 ? keyValue[1] : "";
+
+            params.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                       URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    /*
+     * Returns the named parameter.
+     *
+     * @param params the request parameters
+     * @param name   the parameter name
+     * @return the parameter value
+     */
+    private static String requireParam(final Map<String, String> params, final String name)
+    {
+        final String value = params.get(name);
+
+        if(value == null || value.isBlank())
+        {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    /*
+     * Returns the named parameter as an integer.
+     *
+     * @param params the request parameters
+     * @param name   the parameter name
+     * @return the parameter value
+     */
+    private static int requireIntParam(final Map<String, String> params, final String name)
+    {
+        try
+        {
+            return Integer.parseInt(requireParam(params, name));
+        }
+        catch(final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Parameter must be a whole number: " + name);
+        }
+    }
+
+    /*
+     * Sends a complete plain-text response.
+     *
+     * @param exchange the exchange to respond to
+     * @param status   the HTTP status code
+     * @param text     the response body
+     * @throws IOException if the response cannot be written
+     */
+    private static void sendText(final HttpExchange exchange,
+                                 final int status,
+                                 final String text) throws IOException
+    {
+        final byte[] body = (text + "\n").getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set(CONTENT_TYPE, TEXT_PLAIN);
+        exchange.sendResponseHeaders(status, body.length);
+        try(OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+    }
+
+    /*
+     * Starts a chunked plain-text response whose lines are written as they are produced.
+     *
+     * @param exchange the exchange to respond to
+     * @return a writer for the response body
+     * @throws IOException if the headers cannot be sent
+     */
+    private static Writer startStream(final HttpExchange exchange) throws IOException
+    {
+        exchange.getResponseHeaders().set(CONTENT_TYPE, TEXT_PLAIN);
+        exchange.sendResponseHeaders(STATUS_OK, CHUNKED_LENGTH);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Writes the title of each book in a listing to a streamed response, one per line.
+     * Titles are copied a page at a time under the read lock and written after it is released.
+     * Each page resumes from the previous page's continuation token, so if the store has items
+     * removed or replaced between pages the listing stops with an error line instead of skipping
+     * or repeating titles.
+     *
+     * @param exchange the exchange to respond to
+     * @param query    opens the listing at a continuation token
+     * @throws IOException if the response cannot be written
+     */
+    private void streamTitles(final HttpExchange exchange,
+                              final CursorQuery query) throws IOException
+    {
+        final List<String> page = new ArrayList<>(PAGE_SIZE);
+
+        String token = null;
+        try(Writer out = startStream(exchange))
+        {
+            do
+            {
+                page.clear();
+                lock.readLock().lock();
+                try
+                {
+                    final BookCursor<Literature> cursor = query.open(token);
+
+                    while(page.size() < PAGE_SIZE && cursor.hasNext())
+                    {
+                        page.add(cursor.next().getTitle());
+                    }
+                    token = cursor.getContinuationToken();
+                }
+                catch(final IllegalArgumentException e)
+                {
+                    out.write(ERROR_LINE_PREFIX + e.getMessage());
+                    out.write('\n');
+                    return;
+                }
+                finally
+                {
+                    lock.readLock().unlock();
+                }
+
+                for(final String title : page)
+                {
+                    out.write(title);
+                    out.write('\n');
+                }
+            }
+            while(token != null);
+        }
+    }
+
+    /*
+     * Handles POST /books with type, title, author and year parameters.
+     * Responds 409 if the store's duplicate policy rejects the book.
+     */
+    private void addBook(final HttpExchange exchange,
+                         final Map<String, String> params) throws IOException
+    {
+        final String     type   = requireParam(params, "type");
+        final String     title  = requireParam(params, "title");
+        final String     author = requireParam(params, "author");
+        final int        year   = requireIntParam(params, "year");
+        final Literature item;
+        final boolean    added;
+
+        switch(type.toLowerCase())
+        {
+            case "novel" -> item = new Novel(title, author, year);
+            case "magazine" -> item = new Magazine(title, author, year);
+            case "comic" -> item = new ComicBook(title, author, year);
+            default -> throw new IllegalArgumentException("Unknown type: " + type);
+        }
+
+        lock.writeLock().lock();
+        try
+        {
+            added = store.addItem(item);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+
+        if(added)
+        {
+            sendText(exchange, STATUS_OK, item.toString());
+        }
+        else
+        {
+            sendText(exchange, STATUS_CONFLICT, "Duplicate of a book already held: " + item);
+        }
+    }
+
+    /*
+     * Handles GET /books/count?contains=word.
+     */
+    private void countBooksContaining(final HttpExchange exchange,
+                                      final Map<String, String> params) throws IOException
+    {
+        final String word = requireParam(params, "contains");
+        final int    count;
+
+        lock.readLock().lock();
+        try
+        {
+            count = store.howManyBooksContain(word);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        sendText(exchange, STATUS_OK, String.valueOf(count));
+    }
+
+    /*
+     * Handles GET /books/search?contains=word, streaming matching titles.
+     */
+    private void searchBooks(final HttpExchange exchange,
+                             final Map<String, String> params) throws IOException
+    {
+        final String word = requireParam(params, "contains");
+
+        streamTitles(exchange, token -> store.findBooksContaining(word, token));
+    }
+
+    /*
+     * Handles GET /books/length?length=n, streaming titles of that length.
+     */
+    private void booksThisLength(final HttpExchange exchange,
+                                 final Map<String, String> params) throws IOException
+    {
+        final int length = requireIntParam(params, "length");
+
+        streamTitles(exchange, token -> store.findBooksThisLength(length, token));
+    }
+
+    /*
+     * Handles GET /books/oldest.
+     */
+    private void oldestBook(final HttpExchange exchange,
+                            final Map<String, String> params) throws IOException
+    {
+        final Literature oldest;
+
+        lock.readLock().lock();
+        try
+        {
+            oldest = store.getItemCount() == 0 ? null : store.getOldestBook();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        if(oldest == null)
+        {
+            sendText(exchange, STATUS_NOT_FOUND, "The bookstore is empty");
+        }
+        else
+        {
+            sendText(exchange, STATUS_OK, oldest.toString());
+        }
+    }
+
+    /*
+     * Handles GET /books/sorted, streaming all titles in alphabetical order.
+     */
+    private void sortedTitles(final HttpExchange exchange,
+                              final Map<String, String> params) throws IOException
+    {
+        final List<String> titles;
+
+        lock.readLock().lock();
+        try
+        {
+            titles = sortedTitleList();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        try(Writer out = startStream(exchange))
+        {
+            for(final String title : titles)
+            {
+                out.write(title);
+                out.write('\n');
+            }
+        }
+    }
+
+    /*
+     * Returns all titles in alphabetical order. The list is sorted once and shared by every request
+     * until the store changes. Must be called with the read lock held.
+     *
+     * @return the sorted titles, which must not be modified
+     */
+    private List<String> sortedTitleList()
+    {
+        synchronized(sortedLock)
+        {
+            if(sortedCache == null || sortedChangeCount != store.getChangeCount())
+            {
+                final List<String> titles = new ArrayList<>(store.getItemCount());
+
+                store.forEachTitleInAlphaOrder(titles::add);
+                sortedCache       = Collections.unmodifiableList(titles);
+                sortedChangeCount = store.getChangeCount();
+            }
+            return sortedCache;
+        }
+    }
+
+    /*
+     * Handles GET /years/exists?year=y.
+     */
+    private void bookWrittenIn(final HttpExchange exchange,
+                               final Map<String, String> params) throws IOException
+    {
+        final int     year = requireIntParam(params, "year");
+        final boolean exists;
+
+        lock.readLock().lock();
+        try
+        {
+            exists = store.isThereABookWrittenIn(year);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        sendText(exchange, STATUS_OK, String.valueOf(exists));
+    }
+
+    /*
+     * Handles GET /years/percent?first=y1&amp;last=y2.
+     */
+    private void percentWrittenBetween(final HttpExchange exchange,
+                                       final Map<String, String> params) throws IOException
+    {
+        final int first = requireIntParam(params, "first");
+        final int last  = requireIntParam(params, "last");
+        final int percent;
+
+        lock.readLock().lock();
+        try
+        {
+            percent = store.getItemCount() == 0 ? 0 : store.whichPercentWrittenBetween(first, last);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        sendText(exchange, STATUS_OK, String.valueOf(percent));
+    }
+
+    /**
+     * Starts a server for the sample bookstore.
+     *
+     * @param args an optional port number, then an optional connection backlog
+     * @throws IOException if the server cannot be bound
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final int             port    = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final int             backlog = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BACKLOG;
+        final BookStoreServer server  = new BookStoreServer(new BookStore<>("The Greatest Bookstore"), port,
+                                                            backlog);
+
+        server.start();
+        System.out.println("Serving on port " + server.getPort());
+    }
+}
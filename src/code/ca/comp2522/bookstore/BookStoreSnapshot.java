@@ -0,0 +1,562 @@
+package ca.comp2522.bookstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves and restores a bookstore as a compact binary snapshot.
+ * <p>
+ * A snapshot holds the store name, its duplicate policy and duplicate count, every book in list
+ * order and every entry of the title map.
+ * Each book is written as a type code, its year and its length-prefixed UTF-8 title and author.
+ * A book object held at more than one position is written in full once and then by its first
+ * position, so it is restored as one object and the indexes can refer to it by that position.
+ * Map entries refer to books by their list position. The title trie, existence filters and
+ * fingerprint table follow, also by list position, so a restore loads them as they were instead of
+ * re-inserting every book. Files are read
+ * and written through {@link FileChannel}s with a large direct buffer, and restored books skip the
+ * constructor validation because a snapshot only ever holds books that were already validated.
+ * <p>
+ * A snapshot is written to a temporary file beside the target and then moved over it, so a crash
+ * part-way through never leaves a truncated snapshot in place of the last good one.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public final class BookStoreSnapshot
+{
+
+    private static final int  MAGIC              = 0x424B5331; // "BKS1", marks a file as a bookstore snapshot
+    private static final int  VERSION            = 1; // The only snapshot format version
+    private static final int  BUFFER_SIZE        = 4 * 1024 * 1024; // Size of the direct I/O buffer in bytes
+    private static final int  MAX_PRESIZED_BOOKS = 1 << 20; // Most books the restored list is sized for up front
+    private static final byte REPEATED           = 0; // Type code for a book object already written at an earlier position
+    private static final byte NOVEL              = 1; // Type code for a Novel
+    private static final byte MAGAZINE           = 2; // Type code for a Magazine
+    private static final byte COMIC_BOOK         = 3; // Type code for a ComicBook
+
+    /*
+     * Prevents instantiation of this utility class.
+     */
+    private BookStoreSnapshot()
+    {
+    }
+
+    /**
+     * Writes a snapshot of the bookstore to the given file, replacing any existing file.
+     *
+     * @param store the bookstore to save
+     * @param file  the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(final BookStore<? extends Literature> store,
+                             final Path file) throws IOException
+    {
+        writeStore(store, file);
+    }
+
+    /*
+     * Writes a snapshot of a bookstore with a known literature type.
+     */
+    private static <T extends Literature> void writeStore(final BookStore<T> store,
+                                                          final Path file) throws IOException
+    {
+        final Path    directory = file.toAbsolutePath().getParent();
+        final Path    temporary = Files.createTempFile(directory, file.getFileName() + ".", ".tmp");
+        boolean       moved     = false;
+
+        try
+        {
+            writeStore(store, FileChannel.open(temporary, StandardOpenOption.WRITE));
+            try
+            {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch(final AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        }
+        finally
+        {
+            if(!moved)
+            {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /*
+     * Writes the snapshot to an open channel and forces it to disk.
+     */
+    private static <T extends Literature> void writeStore(final BookStore<T> store,
+                                                          final FileChannel channel) throws IOException
+    {
+        final List<T>         books     = store.getBookList();
+        final Map<String, T>  bookMap   = store.getBookMap();
+        final Map<T, Integer> positions = new IdentityHashMap<>(books.size());
+
+        try(ChannelWriter out = new ChannelWriter(channel))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeString(store.getStoreName());
+            out.writeString(store.getDuplicatePolicy().name());
+            out.writeInt(store.getDuplicateCount());
+
+            out.writeInt(books.size());
+            for(int i = 0; i < books.size(); i++)
+            {
+                final T       book  = books.get(i);
+                final Integer first = positions.putIfAbsent(book, i);
+
+                if(first == null)
+                {
+                    writeBook(out, book);
+                }
+                else
+                {
+                    out.writeByte(REPEATED);
+                    out.writeInt(first);
+                }
+            }
+
+            out.writeInt(bookMap.size());
+            for(final Map.Entry<String, T> entry : bookMap.entrySet())
+            {
+                final Integer position = positions.get(entry.getValue());
+
+                if(position == null)
+                {
+                    throw new IllegalStateException("Title map refers to a book not in the book list: "
+                                                    + entry.getKey());
+                }
+                out.writeString(entry.getKey());
+                out.writeInt(position);
+            }
+
+            store.writeIndexes(out, positions::get);
+            out.force();
+        }
+    }
+
+    /**
+     * Restores a bookstore from a snapshot file.
+     *
+     * @param file the snapshot file to read
+     * @return the restored bookstore
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static BookStore<Literature> read(final Path file) throws IOException
+    {
+        final BookStore<Literature> store;
+        final List<Literature>      books;
+
+        try(ChannelReader in = new ChannelReader(FileChannel.open(file, StandardOpenOption.READ)))
+        {
+            final DuplicatePolicy duplicatePolicy;
+            final int             duplicateCount;
+            final int             bookCount;
+            final int             mappingCount;
+
+            if(in.readInt() != MAGIC)
+            {
+                throw new IOException("Not a bookstore snapshot: " + file);
+            }
+            if(in.readInt() != VERSION)
+            {
+                throw new IOException("Unsupported snapshot version: " + file);
+            }
+
+            store           = new BookStore<>(in.readString(), false);
+            duplicatePolicy = readPolicy(in);
+            duplicateCount  = in.readCount();
+
+            // A corrupt count must not be able to force a huge allocation before the books run out
+            bookCount = in.readCount();
+            books     = new ArrayList<>(Math.min(bookCount, MAX_PRESIZED_BOOKS));
+            for(int i = 0; i < bookCount; i++)
+            {
+                books.add(readBook(in, books));
+            }
+
+            mappingCount = in.readCount();
+            for(int i = 0; i < mappingCount; i++)
+            {
+                final String title    = in.readString();
+                final int    position = in.readInt();
+
+                if(position < 0 || position >= bookCount)
+                {
+                    throw new IOException("Corrupt snapshot: title map refers to a missing book");
+                }
+                store.putBookMapping(title, books.get(position));
+            }
+
+            store.restoreItems(books);
+            store.readIndexes(in);
+            store.setDuplicatePolicy(duplicatePolicy);
+            store.restoreDuplicateCount(duplicateCount);
+        }
+        return store;
+    }
+
+    /*
+     * Reads a duplicate policy written by name.
+     */
+    private static DuplicatePolicy readPolicy(final ChannelReader in) throws IOException
+    {
+        final String name = in.readString();
+
+        try
+        {
+            return DuplicatePolicy.valueOf(name);
+        }
+        catch(final IllegalArgumentException e)
+        {
+            throw new IOException("Corrupt snapshot: unknown duplicate policy " + name, e);
+        }
+    }
+
+    /*
+     * Writes one book.
+     */
+    static void writeBook(final ChannelWriter out, final Literature book) throws IOException
+    {
+        out.writeByte(typeOf(book));
+        out.writeInt(book.getYearPublished());
+        out.writeString(book.getTitle());
+        out.writeString(book.getAuthor());
+    }
+
+    /*
+     * Reads one book without re-validating it. A book repeated from an earlier position is the
+     * same object as that earlier book.
+     *
+     * @param in    the reader
+     * @param books the books read so far
+     * @return the book
+     */
+    static Literature readBook(final ChannelReader in, final List<Literature> books) throws IOException
+    {
+        final byte   type = in.readByte();
+
+        if(type == REPEATED)
+        {
+            final int position = in.readInt();
+
+            if(position < 0 || position >= books.size())
+            {
+                throw new IOException("Corrupt snapshot: repeated book refers to a book not yet read");
+            }
+            return books.get(position);
+        }
+
+        final int    year   = in.readInt();
+        final String title  = in.readString();
+        final String author = in.readString();
+
+        return createTrusted(type, title, author, year);
+    }
+
+    /*
+     * Returns the type code for a book.
+     *
+     * @param book the book
+     * @return the book's type code
+     */
+    static byte typeOf(final Literature book)
+    {
+        return typeOf(book.getClass());
+    }
+
+    /*
+     * Returns the type code for a literature type.
+     *
+     * @param type the literature type
+     * @return the type's code
+     */
+    static byte typeOf(final Class<? extends Literature> type)
+    {
+        if(Novel.class.isAssignableFrom(type))
+        {
+            return NOVEL;
+        }
+        else if(Magazine.class.isAssignableFrom(type))
+        {
+            return MAGAZINE;
+        }
+        else if(ComicBook.class.isAssignableFrom(type))
+        {
+            return COMIC_BOOK;
+        }
+        throw new IllegalArgumentException("Unsupported literature type: " + type.getName());
+    }
+
+    /*
+     * Creates a book of the given type from values that are already known to be valid.
+     *
+     * @param type   the type code
+     * @param title  the title
+     * @param author the author
+     * @param year   the year of publication
+     * @return the book
+     */
+    static Literature createTrusted(final byte type,
+                                    final String title,
+                                    final String author,
+                                    final int year) throws IOException
+    {
+        switch(type)
+        {
+            case NOVEL:
+                return new Novel(title, author, year, false);
+            case MAGAZINE:
+                return new Magazine(title, author, year, false);
+            case COMIC_BOOK:
+                return new ComicBook(title, author, year, false);
+            default:
+                throw new IOException("Unknown literature type code: " + type);
+        }
+    }
+
+    /*
+     * Writes primitive values and strings to a channel through a large direct buffer.
+     */
+    static final class ChannelWriter implements AutoCloseable
+    {
+        private final FileChannel channel; // The channel written to
+        private final ByteBuffer  buffer; // Values waiting to be written
+
+        ChannelWriter(final FileChannel channel)
+        {
+            this.channel = channel;
+            this.buffer  = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        void writeByte(final byte value) throws IOException
+        {
+            ensureRoom(Byte.BYTES);
+            buffer.put(value);
+        }
+
+        void writeInt(final int value) throws IOException
+        {
+            ensureRoom(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeLong(final long value) throws IOException
+        {
+            ensureRoom(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void writeString(final String value) throws IOException
+        {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            writeInt(bytes.length);
+            if(bytes.length > buffer.capacity())
+            {
+                flush();
+                writeFully(ByteBuffer.wrap(bytes));
+            }
+            else
+            {
+                ensureRoom(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+
+        /*
+         * Returns the position in the channel at which the next value will be written.
+         */
+        long position() throws IOException
+        {
+            return channel.position() + buffer.position();
+        }
+
+        void flush() throws IOException
+        {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        /*
+         * Flushes the buffer and forces everything written so far onto the storage device.
+         */
+        void force() throws IOException
+        {
+            flush();
+            channel.force(true);
+        }
+
+        private void ensureRoom(final int bytes) throws IOException
+        {
+            if(buffer.remaining() < bytes)
+            {
+                flush();
+            }
+        }
+
+        private void writeFully(final ByteBuffer source) throws IOException
+        {
+            while(source.hasRemaining())
+            {
+                channel.write(source);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                flush();
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+    }
+
+    /*
+     * Reads primitive values and strings from a channel through a large direct buffer.
+     */
+    static final class ChannelReader implements AutoCloseable
+    {
+        private final FileChannel channel; // The channel read from
+        private final ByteBuffer  buffer; // Bytes read but not yet consumed
+
+        ChannelReader(final FileChannel channel)
+        {
+            this.channel = channel;
+            this.buffer  = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.limit(0);
+        }
+
+        byte readByte() throws IOException
+        {
+            require(Byte.BYTES);
+            return buffer.get();
+        }
+
+        int readInt() throws IOException
+        {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long readLong() throws IOException
+        {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        /*
+         * Reads a count or length, which must not be negative.
+         */
+        int readCount() throws IOException
+        {
+            final int count = readInt();
+
+            if(count < 0)
+            {
+                throw new IOException("Corrupt snapshot: negative count or length " + count);
+            }
+            return count;
+        }
+
+        String readString() throws IOException
+        {
+            final int    length = readCount();
+            final byte[] bytes;
+
+            if(length > buffer.capacity())
+            {
+                if(length > remaining())
+                {
+                    throw new IOException("Corrupt snapshot: string longer than the rest of the file");
+                }
+
+                bytes = new byte[length];
+                final ByteBuffer target = ByteBuffer.wrap(bytes);
+
+                target.put(buffer);
+                while(target.hasRemaining())
+                {
+                    if(channel.read(target) < 0)
+                    {
+                        throw new IOException("Snapshot ended in the middle of a value");
+                    }
+                }
+                buffer.clear();
+                buffer.limit(0);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            require(length);
+            bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /*
+         * Moves back to the start of the channel, discarding anything buffered, so the reader can be reused.
+         */
+        void rewind() throws IOException
+        {
+            channel.position(0L);
+            buffer.clear();
+            buffer.limit(0);
+        }
+
+        /*
+         * Returns the number of bytes left to read, used to reject corrupt lengths before allocating.
+         */
+        long remaining() throws IOException
+        {
+            return channel.size() - channel.position() + buffer.remaining();
+        }
+
+        private void require(final int bytes) throws IOException
+        {
+            if(buffer.remaining() >= bytes)
+            {
+                return;
+            }
+
+            buffer.compact();
+            while(buffer.position() < bytes)
+            {
+                if(channel.read(buffer) < 0)
+                {
+                    throw new IOException("Snapshot ended in the middle of a value");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+}
@@ -5,7 +5,8 @@ package ca.comp2522.bookstore;
  * A comic book has a title, an author, and a year of publication.
  * It extends the {@link Literature} class.
  * <p>
- * Provides methods to retrieve and modify comic book attributes.
+ * Provides methods to retrieve and modify comic book attributes. While a bookstore holds the comic
+ * book, change it through {@link BookStore#updateItem} so that the store's indexes stay current.
  *
  * @author Bullen Kosa
  * @author Isaac Kehler
@@ -28,12 +29,32 @@ public class ComicBook extends Literature
      * @param yearPublished the year the comic book was published
      */
     public ComicBook(final String title, final String author, final int yearPublished)
+    {
+        this(title, author, yearPublished, true);
+    }
+
+    /**
+     * Constructs a new ComicBook, optionally skipping validation of already trusted values
+     * such as those restored from a snapshot.
+     *
+     * @param title         the title of the comic book
+     * @param author        the author of the comic book
+     * @param yearPublished the year the comic book was published
+     * @param validate      true to validate the values, false if they are already known to be valid
+     */
+    ComicBook(final String title,
+              final String author,
+              final int yearPublished,
+              final boolean validate)
     {
         super(yearPublished);
 
-        validateTitle(title);
-        validateAuthor(author);
-        validateYearPublished(yearPublished);
+        if(validate)
+        {
+            validateTitle(title);
+            validateAuthor(author);
+            validateYearPublished(yearPublished);
+        }
 
         this.author        = author;
         this.title         = title;
@@ -95,9 +116,11 @@ public class ComicBook extends Literature
      * Sets the title of the comic book.
      *
      * @param title the new title of the comic book
+     * @throws IllegalArgumentException if the title is null or blank
      */
     public void setTitle(final String title)
     {
+        validateTitle(title);
         this.title = title;
     }
 
@@ -116,9 +139,11 @@ public class ComicBook extends Literature
      * Sets the author of the comic book.
      *
      * @param author the new author of the comic book
+     * @throws IllegalArgumentException if the author is null or blank
      */
     public void setAuthor(final String author)
     {
+        validateAuthor(author);
         this.author = author;
     }
 
@@ -137,9 +162,11 @@ public class ComicBook extends Literature
      * Sets the year the comic book was published.
      *
      * @param yearPublished the new publication year
+     * @throws IllegalArgumentException if the year is outside the accepted range
      */
     public void setYearPublished(final int yearPublished)
     {
+        validateYearPublished(yearPublished);
         this.yearPublished = yearPublished;
     }
 
@@ -0,0 +1,28 @@
+package ca.comp2522.bookstore;
+
+/**
+ * What a bookstore does when it is given a book that duplicates one it already holds.
+ * Two books are duplicates when they are the same type and have the same author, year of
+ * publication and title, ignoring case and surrounding or repeated whitespace in the title.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public enum DuplicatePolicy
+{
+    /**
+     * Keeps the book already held and discards the new one.
+     */
+    REJECT,
+
+    /**
+     * Replaces the book already held with the new one, in the same position.
+     */
+    REPLACE,
+
+    /**
+     * Adds the new book as well, so the store holds both. Duplicates are still counted.
+     */
+    KEEP_ALL
+}
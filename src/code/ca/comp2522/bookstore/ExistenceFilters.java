@@ -0,0 +1,243 @@
+package ca.comp2522.bookstore;
+
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelReader;
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelWriter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bloom filters over the titles, authors and years in a bookstore, used to answer
+ * "is there any book with ..." questions negatively without touching the book list or map.
+ * <p>
+ * Filters are updated as books are added, and again when a held book's title, author or year is
+ * changed through {@link BookStore#updateItem}, so the new values are always present; the old ones
+ * stay behind as false positives. Bloom filters cannot forget keys, so after a removal, or once the
+ * filters hold more keys than they were sized for, a fresh set is built from a snapshot of the book
+ * list on a background thread. Books added while that rebuild runs go into both the old and the new
+ * set, and the new set is swapped in once it is complete. Until then, the old set can only give
+ * extra false positives, never a false negative.
+ * <p>
+ * Mutating methods must be called from the thread that owns the book list; the query methods
+ * can be called from any thread.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+class ExistenceFilters
+{
+
+    private static final int    MIN_CAPACITY        = 1024; // Smallest number of keys a filter set is sized for
+    private static final int    GROWTH_FACTOR       = 2; // Room left for growth when a filter set is rebuilt
+    private static final double FALSE_POSITIVE_RATE = 0.01; // Target false-positive rate of each filter
+
+    private static final ExecutorService REBUILDER = Executors.newSingleThreadExecutor(task ->
+    {
+        final Thread thread = new Thread(task, "BookStore filter rebuilder");
+        thread.setDaemon(true);
+        return thread;
+    }); // Builds replacement filter sets off the caller's thread
+
+    private final    Object    lock; // Orders additions against the swap of a rebuilt set
+    private volatile FilterSet current; // The filters answering queries
+    private volatile FilterSet rebuilding; // The set being rebuilt in the background, or null
+
+    /*
+     * One generation of title, author and year filters.
+     */
+    private static final class FilterSet
+    {
+        private final BloomFilter titles; // Filter over exact titles
+        private final BloomFilter authors; // Filter over exact author names
+        private final BloomFilter years; // Filter over years of publication
+
+        private FilterSet(final int capacity)
+        {
+            this(new BloomFilter(capacity, FALSE_POSITIVE_RATE),
+                 new BloomFilter(capacity, FALSE_POSITIVE_RATE),
+                 new BloomFilter(capacity, FALSE_POSITIVE_RATE));
+        }
+
+        private FilterSet(final BloomFilter titles,
+                          final BloomFilter authors,
+                          final BloomFilter years)
+        {
+            this.titles  = titles;
+            this.authors = authors;
+            this.years   = years;
+        }
+
+        private void add(final Literature book)
+        {
+            titles.add(BloomFilter.hash(book.getTitle()));
+            authors.add(BloomFilter.hash(book.getAuthor()));
+            years.add(BloomFilter.hash(book.getYearPublished()));
+        }
+
+        private boolean isSaturated()
+        {
+            return titles.isSaturated() || authors.isSaturated() || years.isSaturated();
+        }
+    }
+
+    /**
+     * Constructs a new, empty set of existence filters.
+     */
+    ExistenceFilters()
+    {
+        this.lock       = new Object();
+        this.current    = new FilterSet(MIN_CAPACITY);
+        this.rebuilding = null;
+    }
+
+    /**
+     * Adds a book to the filters, starting a larger rebuild if the filters are now over capacity.
+     *
+     * @param book  the book that was added
+     * @param books the book list after the addition
+     */
+    void add(final Literature book, final List<? extends Literature> books)
+    {
+        synchronized(lock)
+        {
+            current.add(book);
+            if(rebuilding != null)
+            {
+                rebuilding.add(book);
+            }
+
+            if(rebuilding == null ? current.isSaturated() : rebuilding.isSaturated())
+            {
+                startRebuild(books);
+            }
+        }
+    }
+
+    /**
+     * Requests that the filters be rebuilt from the book list, as after a removal.
+     * Any rebuild already running is abandoned, since its snapshot still holds the removed book.
+     *
+     * @param books the book list after the change
+     */
+    void requestRebuild(final List<? extends Literature> books)
+    {
+        synchronized(lock)
+        {
+            startRebuild(books);
+        }
+    }
+
+    /*
+     * Starts building a new filter set from a snapshot of the book list, abandoning any rebuild
+     * already running. The new set is sized for twice the current number of books, so repeated
+     * growth rebuilds cost amortized constant time per book. Must be called while holding the lock.
+     *
+     * @param books the book list
+     */
+    private void startRebuild(final List<? extends Literature> books)
+    {
+        final FilterSet target;
+        final Object[]  snapshot;
+
+        target     = new FilterSet(Math.max(MIN_CAPACITY, books.size() * GROWTH_FACTOR));
+        snapshot   = books.toArray();
+        rebuilding = target;
+
+        REBUILDER.execute(() ->
+                          {
+                              for(final Object book : snapshot)
+                              {
+                                  if(rebuilding != target)
+                                  {
+                                      return;
+                                  }
+                                  target.add((Literature) book);
+                              }
+
+                              synchronized(lock)
+                              {
+                                  if(rebuilding == target)
+                                  {
+                                      current    = target;
+                                      rebuilding = null;
+                                  }
+                              }
+                          });
+    }
+
+    /**
+     * Writes the filters currently answering queries to a snapshot.
+     *
+     * @param out the snapshot writer
+     * @throws IOException if the snapshot cannot be written
+     */
+    void writeTo(final ChannelWriter out) throws IOException
+    {
+        final FilterSet set = current;
+
+        set.titles.writeTo(out);
+        set.authors.writeTo(out);
+        set.years.writeTo(out);
+    }
+
+    /**
+     * Replaces the filters with ones read from a snapshot, so that they need not be rebuilt from the books.
+     * If the restored filters are already over capacity, a larger rebuild is started.
+     *
+     * @param in    the snapshot reader
+     * @param books the restored book list
+     * @throws IOException if the snapshot cannot be read or the filters are corrupt
+     */
+    void readFrom(final ChannelReader in, final List<? extends Literature> books) throws IOException
+    {
+        final BloomFilter titles  = BloomFilter.readFrom(in);
+        final BloomFilter authors = BloomFilter.readFrom(in);
+        final BloomFilter years   = BloomFilter.readFrom(in);
+
+        synchronized(lock)
+        {
+            current    = new FilterSet(titles, authors, years);
+            rebuilding = null;
+            if(current.isSaturated())
+            {
+                startRebuild(books);
+            }
+        }
+    }
+
+    /**
+     * Checks if a book with exactly this title might exist.
+     *
+     * @param title the title to check
+     * @return false if no book has this title, true if one might
+     */
+    boolean mightContainTitle(final String title)
+    {
+        return current.titles.mightContain(BloomFilter.hash(title));
+    }
+
+    /**
+     * Checks if a book by exactly this author might exist.
+     *
+     * @param author the author to check
+     * @return false if no book is by this author, true if one might be
+     */
+    boolean mightContainAuthor(final String author)
+    {
+        return current.authors.mightContain(BloomFilter.hash(author));
+    }
+
+    /**
+     * Checks if a book published in this year might exist.
+     *
+     * @param year the year to check
+     * @return false if no book was published in this year, true if one might have been
+     */
+    boolean mightContainYear(final int year)
+    {
+        return current.years.mightContain(BloomFilter.hash(year));
+    }
+}
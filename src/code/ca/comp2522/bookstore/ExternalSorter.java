@@ -0,0 +1,318 @@
+package ca.comp2522.bookstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Sorts records that may not fit in memory, using an external merge sort.
+ * <p>
+ * Each record is a sort key and a line of output. Records are buffered in memory until a run is
+ * full; the run is then sorted and spilled to a temporary file. When the output is requested the
+ * runs are merged with a k-way merge, a bounded number at a time, and the lines are passed on in
+ * key order. Keys are compared with {@link String#compareTo}, so callers that want a case-insensitive
+ * order pass lower-cased keys. The sort is stable: records with equal keys keep the order they were added.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+class ExternalSorter implements AutoCloseable
+{
+
+    private static final int    MIN_RUN_SIZE         = 1; // A run must hold at least one record
+    private static final int    INITIAL_RUN_CAPACITY = 64 * 1024; // Most records the run buffer is sized for up front
+    private static final int    MAX_FAN_IN           = 64; // The most runs merged at once
+    private static final int    BUFFER_SIZE          = 64 * 1024; // Size of each run file's I/O buffer in bytes
+    private static final String TEMP_PREFIX          = "bookstore-run-"; // Prefix of the temporary run files
+
+    private static final Comparator<Record> KEY_ORDER = Comparator.comparing(record -> record.key);
+
+    private final int          maxRunSize; // The most records held in memory at once
+    private final List<Record> buffer; // Records not yet spilled to a run
+    private final List<Path>   runs; // Sorted run files, in the order they were written
+
+    /*
+     * A sort key and the line output for it.
+     */
+    private static final class Record
+    {
+        private final String key; // The value the record is sorted by
+        private final String line; // The value output for the record
+
+        private Record(final String key, final String line)
+        {
+            this.key  = key;
+            this.line = line;
+        }
+    }
+
+    /*
+     * Receives merged records; unlike Consumer, it may write them to another run.
+     */
+    @FunctionalInterface
+    private interface RecordSink
+    {
+        void accept(Record record) throws IOException;
+    }
+
+    /*
+     * Reads the records of one run in order, one record ahead.
+     */
+    private static final class RunReader implements AutoCloseable
+    {
+        private final DataInputStream in; // The run file
+        private final int             runIndex; // Orders readers with equal keys, keeping the sort stable
+        private       Record          current; // The next record, or null once the run is exhausted
+
+        private RunReader(final Path run, final int runIndex) throws IOException
+        {
+            this.in       = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+            this.runIndex = runIndex;
+            advance();
+        }
+
+        private void advance() throws IOException
+        {
+            final String key;
+
+            try
+            {
+                key = readString(in);
+            }
+            catch(final EOFException e)
+            {
+                current = null;
+                return;
+            }
+            current = new Record(key, readString(in));
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Constructs a new ExternalSorter.
+     *
+     * @param maxRunSize the most records to hold in memory before spilling a run to disk
+     */
+    ExternalSorter(final int maxRunSize)
+    {
+        if(maxRunSize < MIN_RUN_SIZE)
+        {
+            throw new IllegalArgumentException("Run size must be at least " + MIN_RUN_SIZE);
+        }
+
+        this.maxRunSize = maxRunSize;
+        this.buffer     = new ArrayList<>(Math.min(maxRunSize, INITIAL_RUN_CAPACITY));
+        this.runs       = new ArrayList<>();
+    }
+
+    /**
+     * Adds a record to be sorted.
+     *
+     * @param key  the value the record is sorted by
+     * @param line the value output for the record
+     * @throws IOException if a full run cannot be spilled
+     */
+    void add(final String key, final String line) throws IOException
+    {
+        buffer.add(new Record(key, line));
+        if(buffer.size() >= maxRunSize)
+        {
+            spill();
+        }
+    }
+
+    /**
+     * Passes every line to the action in key order.
+     *
+     * @param action the action to perform on each line
+     * @throws IOException if the runs cannot be read or merged
+     */
+    void forEachSorted(final Consumer<String> action) throws IOException
+    {
+        if(runs.isEmpty())
+        {
+            buffer.sort(KEY_ORDER);
+            buffer.forEach(record -> action.accept(record.line));
+            return;
+        }
+
+        if(!buffer.isEmpty())
+        {
+            spill();
+        }
+        while(runs.size() > MAX_FAN_IN)
+        {
+            mergePass();
+        }
+        merge(runs, action);
+    }
+
+    /*
+     * Sorts the buffered records and writes them to a new run file.
+     */
+    private void spill() throws IOException
+    {
+        final Path run = Files.createTempFile(TEMP_PREFIX, null);
+
+        runs.add(run);
+        buffer.sort(KEY_ORDER);
+        try(DataOutputStream out = newRunWriter(run))
+        {
+            for(final Record record : buffer)
+            {
+                writeString(out, record.key);
+                writeString(out, record.line);
+            }
+        }
+        buffer.clear();
+    }
+
+    /*
+     * Merges each group of consecutive runs into one, reducing the number of runs by up to MAX_FAN_IN times.
+     */
+    private void mergePass() throws IOException
+    {
+        final List<Path> merged = new ArrayList<>();
+
+        for(int start = 0; start < runs.size(); start += MAX_FAN_IN)
+        {
+            final List<Path> group  = runs.subList(start, Math.min(start + MAX_FAN_IN, runs.size()));
+            final Path       output = Files.createTempFile(TEMP_PREFIX, null);
+
+            merged.add(output);
+            try(DataOutputStream out = newRunWriter(output))
+            {
+                mergeRecords(group, record ->
+                {
+                    writeString(out, record.key);
+                    writeString(out, record.line);
+                });
+            }
+
+            for(final Path run : group)
+            {
+                Files.deleteIfExists(run);
+            }
+        }
+
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    /*
+     * Merges the given runs, passing each line to the action.
+     */
+    private static void merge(final List<Path> runs, final Consumer<String> action) throws IOException
+    {
+        mergeRecords(runs, record -> action.accept(record.line));
+    }
+
+    /*
+     * Performs a k-way merge of the given runs, passing each record to the action in key order.
+     * Records with equal keys come from the earlier run first.
+     */
+    private static void mergeRecords(final List<Path> runs, final RecordSink action) throws IOException
+    {
+        final PriorityQueue<RunReader> queue   = new PriorityQueue<>(
+            Comparator.comparing((RunReader reader) -> reader.current.key)
+                      .thenComparingInt(reader -> reader.runIndex));
+        final List<RunReader>          readers = new ArrayList<>(runs.size());
+
+        try
+        {
+            for(int i = 0; i < runs.size(); i++)
+            {
+                final RunReader reader = new RunReader(runs.get(i), i);
+
+                readers.add(reader);
+                if(reader.current != null)
+                {
+                    queue.add(reader);
+                }
+            }
+
+            while(!queue.isEmpty())
+            {
+                final RunReader reader = queue.poll();
+
+                action.accept(reader.current);
+                reader.advance();
+                if(reader.current != null)
+                {
+                    queue.add(reader);
+                }
+            }
+        }
+        finally
+        {
+            for(final RunReader reader : readers)
+            {
+                reader.close();
+            }
+        }
+    }
+
+    /*
+     * Opens a buffered writer for a run file.
+     */
+    private static DataOutputStream newRunWriter(final Path run) throws IOException
+    {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE));
+    }
+
+    /*
+     * Writes a length-prefixed UTF-8 string.
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /*
+     * Reads a length-prefixed UTF-8 string.
+     */
+    private static String readString(final DataInputStream in) throws IOException
+    {
+        final byte[] bytes = new byte[in.readInt()];
+
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes any remaining run files.
+     *
+     * @throws IOException if a run file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException
+    {
+        for(final Path run : runs)
+        {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        buffer.clear();
+    }
+}
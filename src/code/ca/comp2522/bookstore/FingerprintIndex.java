@@ -0,0 +1,389 @@
+package ca.comp2522.bookstore;
+
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelReader;
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Maps the 64-bit fingerprint of each distinct work in a bookstore to its position in the book list.
+ * A fingerprint covers the normalized title, author, year of publication and type of a book.
+ * <p>
+ * Keys and positions are kept in two parallel primitive arrays with open addressing and linear
+ * probing, so each slot costs 12 bytes and no objects. A fingerprint match is confirmed against
+ * the book itself before it is treated as a duplicate, so a hash collision can never discard a book.
+ * <p>
+ * A fingerprint is taken when its book is added. If a held book's title, author or year is changed
+ * through {@link BookStore#updateItem}, the store moves the book to its new fingerprint with
+ * {@link #forget(Literature, List)} and {@link #add(long, int)}. A removal deletes the entry in place
+ * and shifts the later positions down in one pass over the table, instead of re-hashing every book.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+class FingerprintIndex
+{
+
+    private static final int  INITIAL_CAPACITY = 16; // Initial number of slots, a power of two
+    private static final int  GROWTH_FACTOR    = 2; // Multiplier applied when the table is too full
+    private static final int  LOAD_DIVISOR     = 2; // The table grows once it is more than 1/2 full
+    private static final int  NOT_FOUND        = -1; // Position returned when no work matches
+    private static final long EMPTY            = 0L; // Key marking an unused slot
+    private static final long EMPTY_SUBSTITUTE = 1L; // Stored in place of a fingerprint equal to EMPTY
+    private static final long COMBINE          = 0x9e3779b97f4a7c15L; // Odd multiplier mixing the fields together
+
+    private long[] keys; // Fingerprints, or EMPTY for unused slots
+    private int[]  positions; // The book list position for each fingerprint
+    private int    size; // The number of fingerprints in the table
+
+    /**
+     * Constructs a new, empty FingerprintIndex.
+     */
+    FingerprintIndex()
+    {
+        clear();
+    }
+
+    /**
+     * Finds the position of a book in the list that duplicates the given one.
+     *
+     * @param key   the book's fingerprint
+     * @param book  the book to look up
+     * @param books the book list the positions refer to
+     * @return the position of the duplicate, or -1 if there is none
+     */
+    int find(final long key,
+             final Literature book,
+             final List<? extends Literature> books)
+    {
+        final int mask = keys.length - 1;
+
+        for(int slot = slot(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+        {
+            if(keys[slot] == key)
+            {
+                final int position = positions[slot];
+
+                return isSameWork(book, books.get(position)) ? position : NOT_FOUND;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Records the position of a book. If the fingerprint is already present the smaller position is
+     * kept, so the index always refers to the earliest copy of a work.
+     *
+     * @param key      the book's fingerprint
+     * @param position the position of the book in the list
+     */
+    void add(final long key, final int position)
+    {
+        if((size + 1) * LOAD_DIVISOR > keys.length)
+        {
+            resize(keys.length * GROWTH_FACTOR);
+        }
+
+        int slot = slot(key, keys.length - 1);
+        while(keys[slot] != EMPTY)
+        {
+            if(keys[slot] == key)
+            {
+                positions[slot] = Math.min(positions[slot], position);
+                return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot]      = key;
+        positions[slot] = position;
+        size++;
+    }
+
+    /**
+     * Updates the index after the book at a position has been removed from the list. Later positions
+     * are shifted down by one. If the removed book was the indexed copy of its work, the next copy
+     * still in the list, if any, is indexed in its place.
+     *
+     * @param position the position the book was removed from
+     * @param removed  the removed book
+     * @param books    the book list, after the removal
+     */
+    void remove(final int position,
+                final Literature removed,
+                final List<? extends Literature> books)
+    {
+        int removedSlot = NOT_FOUND;
+
+        for(int slot = 0; slot < keys.length; slot++)
+        {
+            if(keys[slot] != EMPTY)
+            {
+                if(positions[slot] == position)
+                {
+                    removedSlot = slot;
+                }
+                else if(positions[slot] > position)
+                {
+                    positions[slot]--;
+                }
+            }
+        }
+
+        if(removedSlot != NOT_FOUND)
+        {
+            final long key = keys[removedSlot];
+
+            delete(removedSlot);
+            for(int i = position; i < books.size(); i++)
+            {
+                if(isSameWork(removed, books.get(i)))
+                {
+                    add(key, i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a book that is about to change from the index, while it still has its old values.
+     * If it was the indexed copy of its work, the next other copy of the work, if any, is indexed in its place.
+     *
+     * @param book  the book about to change
+     * @param books the book list
+     */
+    void forget(final Literature book, final List<? extends Literature> books)
+    {
+        final long key  = fingerprint(book);
+        final int  mask = keys.length - 1;
+
+        for(int slot = slot(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+        {
+            if(keys[slot] == key)
+            {
+                final int position = positions[slot];
+
+                if(books.get(position) != book)
+                {
+                    return;
+                }
+
+                delete(slot);
+                for(int i = position + 1; i < books.size(); i++)
+                {
+                    final Literature other = books.get(i);
+
+                    if(other != book && isSameWork(book, other))
+                    {
+                        add(key, i);
+                        return;
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the table to a snapshot, slot for slot, so that it can be restored without re-hashing any titles.
+     *
+     * @param out the snapshot writer
+     * @throws IOException if the snapshot cannot be written
+     */
+    void writeTo(final ChannelWriter out) throws IOException
+    {
+        out.writeInt(keys.length);
+        out.writeInt(size);
+        for(final long key : keys)
+        {
+            out.writeLong(key);
+        }
+        for(final int position : positions)
+        {
+            out.writeInt(position);
+        }
+    }
+
+    /**
+     * Replaces the table with one written by {@link #writeTo(ChannelWriter)}.
+     *
+     * @param in        the snapshot reader
+     * @param bookCount the number of books in the restored list
+     * @throws IOException if the snapshot cannot be read or the table is corrupt
+     */
+    void readFrom(final ChannelReader in, final int bookCount) throws IOException
+    {
+        final int    capacity = in.readCount();
+        final int    count    = in.readCount();
+        final long[] newKeys;
+        final int[]  newPositions;
+
+        if(capacity < INITIAL_CAPACITY || Integer.bitCount(capacity) != 1 || count > capacity / LOAD_DIVISOR
+           || (long) capacity * (Long.BYTES + Integer.BYTES) > in.remaining())
+        {
+            throw new IOException("Corrupt snapshot: invalid fingerprint table");
+        }
+
+        newKeys      = new long[capacity];
+        newPositions = new int[capacity];
+        for(int i = 0; i < capacity; i++)
+        {
+            newKeys[i] = in.readLong();
+        }
+        for(int i = 0; i < capacity; i++)
+        {
+            newPositions[i] = in.readInt();
+            if(newKeys[i] != EMPTY && (newPositions[i] < 0 || newPositions[i] >= bookCount))
+            {
+                throw new IOException("Corrupt snapshot: fingerprint refers to a missing book");
+            }
+        }
+
+        keys      = newKeys;
+        positions = newPositions;
+        size      = count;
+    }
+
+    /*
+     * Empties a slot, moving later entries of the same probe run back so that every entry stays
+     * reachable from its home slot.
+     *
+     * @param slot the slot to empty
+     */
+    private void delete(final int slot)
+    {
+        final int mask = keys.length - 1;
+
+        int hole = slot;
+        for(int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask)
+        {
+            final int home = slot(keys[next], mask);
+
+            if(((next - home) & mask) >= ((next - hole) & mask))
+            {
+                keys[hole]      = keys[next];
+                positions[hole] = positions[next];
+                hole            = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    /*
+     * Empties the table and shrinks it back to its initial capacity.
+     */
+    private void clear()
+    {
+        this.keys      = new long[INITIAL_CAPACITY];
+        this.positions = new int[INITIAL_CAPACITY];
+        this.size      = 0;
+    }
+
+    /*
+     * Moves every entry into a table with the given number of slots.
+     *
+     * @param capacity the new number of slots, a power of two
+     */
+    private void resize(final int capacity)
+    {
+        final long[] oldKeys      = keys;
+        final int[]  oldPositions = positions;
+        final int    mask         = capacity - 1;
+
+        keys      = new long[capacity];
+        positions = new int[capacity];
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            if(oldKeys[i] != EMPTY)
+            {
+                int slot = slot(oldKeys[i], mask);
+                while(keys[slot] != EMPTY)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot]      = oldKeys[i];
+                positions[slot] = oldPositions[i];
+            }
+        }
+    }
+
+    /*
+     * Returns the home slot of a fingerprint. The high bits are folded in, since the mask keeps only the low bits.
+     *
+     * @param key  the fingerprint
+     * @param mask the number of slots minus one
+     * @return the slot to start probing from
+     */
+    private static int slot(final long key, final int mask)
+    {
+        return (int) (key ^ (key >>> Integer.SIZE)) & mask;
+    }
+
+    /**
+     * Computes the fingerprint of a book from its normalized title, author, year and type.
+     *
+     * @param book the book
+     * @return the fingerprint
+     */
+    static long fingerprint(final Literature book)
+    {
+        long key = BloomFilter.hash(normalizeTitle(book.getTitle()));
+
+        key = key * COMBINE + BloomFilter.hash(book.getAuthor());
+        key = key * COMBINE + BloomFilter.hash(book.getYearPublished());
+        key = key * COMBINE + BloomFilter.hash(book.getClass().getName());
+        return key == EMPTY ? EMPTY_SUBSTITUTE : key;
+    }
+
+    /*
+     * Checks if two books are the same work, field by field.
+     *
+     * @param first  the first book
+     * @param second the second book
+     * @return true if the books are duplicates
+     */
+    private static boolean isSameWork(final Literature first, final Literature second)
+    {
+        return first.getClass() == second.getClass()
+               && first.getYearPublished() == second.getYearPublished()
+               && first.getAuthor().equals(second.getAuthor())
+               && normalizeTitle(first.getTitle()).equals(normalizeTitle(second.getTitle()));
+    }
+
+    /**
+     * Lower-cases a title, trims it and collapses runs of whitespace to a single space, so titles
+     * that differ only in those ways are equal. A single pass over the characters, since this runs
+     * for every book added.
+     *
+     * @param title the title
+     * @return the normalized title
+     */
+    static String normalizeTitle(final String title)
+    {
+        final StringBuilder normalized = new StringBuilder(title.length());
+
+        boolean pendingSpace = false;
+        for(int i = 0; i < title.length(); i++)
+        {
+            final char c = title.charAt(i);
+
+            if(Character.isWhitespace(c))
+            {
+                pendingSpace = normalized.length() > 0;
+            }
+            else
+            {
+                if(pendingSpace)
+                {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+}
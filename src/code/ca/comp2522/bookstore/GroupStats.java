@@ -0,0 +1,112 @@
+package ca.comp2522.bookstore;
+
+/**
+ * Aggregate statistics for one group of books: how many there are, the earliest and latest
+ * years of publication, and the average title length. Partial statistics computed over
+ * separate parts of a collection can be merged.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class GroupStats
+{
+
+    private int  count; // The number of books in the group
+    private int  minYear; // The earliest year of publication in the group
+    private int  maxYear; // The latest year of publication in the group
+    private long totalTitleLength; // The sum of the title lengths in the group
+
+    /**
+     * Constructs new, empty GroupStats.
+     */
+    public GroupStats()
+    {
+        this.count            = BookStore.BEGINNING_COUNT;
+        this.minYear          = Integer.MAX_VALUE;
+        this.maxYear          = Integer.MIN_VALUE;
+        this.totalTitleLength = 0L;
+    }
+
+    /**
+     * Adds a book to the group.
+     *
+     * @param book the book to add
+     */
+    public void accept(final Literature book)
+    {
+        final int year = book.getYearPublished();
+
+        count++;
+        minYear           = Math.min(minYear, year);
+        maxYear           = Math.max(maxYear, year);
+        totalTitleLength += book.getTitle().length();
+    }
+
+    /**
+     * Merges the statistics of another part of the same group into these statistics.
+     *
+     * @param other the statistics to merge in
+     * @return these statistics, after merging
+     */
+    public GroupStats merge(final GroupStats other)
+    {
+        count            += other.count;
+        minYear           = Math.min(minYear, other.minYear);
+        maxYear           = Math.max(maxYear, other.maxYear);
+        totalTitleLength += other.totalTitleLength;
+        return this;
+    }
+
+    /**
+     * Returns the number of books in the group.
+     *
+     * @return the book count
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the earliest year of publication in the group.
+     *
+     * @return the earliest year, or Integer.MAX_VALUE if the group is empty
+     */
+    public int getMinYear()
+    {
+        return minYear;
+    }
+
+    /**
+     * Returns the latest year of publication in the group.
+     *
+     * @return the latest year, or Integer.MIN_VALUE if the group is empty
+     */
+    public int getMaxYear()
+    {
+        return maxYear;
+    }
+
+    /**
+     * Returns the average title length in the group.
+     *
+     * @return the average length of book titles, or NaN if the group is empty
+     */
+    public double getAverageTitleLength()
+    {
+        return (double) totalTitleLength / count;
+    }
+
+    /**
+     * Returns a formatted string representation of the statistics.
+     *
+     * @return a string listing the count, year range and average title length
+     */
+    @Override
+    public String toString()
+    {
+        return "count=" + count + ", years=" + minYear + "-" + maxYear +
+               ", averageTitleLength=" + String.format("%.2f", getAverageTitleLength());
+    }
+}
@@ -5,7 +5,8 @@ package ca.comp2522.bookstore;
  * A magazine has a title, an author, and a year of publication.
  * It extends the {@link Literature} class.
  * <p>
- * Provides methods to get and set magazine attributes.
+ * Provides methods to get and set magazine attributes. Setters reject the same values as the
+ * constructor. A magazine held by a bookstore is changed through {@link BookStore#updateItem}.
  *
  * @author Bullen Kosa
  * @author Isaac Kehler
@@ -30,12 +31,32 @@ public class Magazine extends Literature
     public Magazine(final String title,
                     final String author,
                     final int yearPublished)
+    {
+        this(title, author, yearPublished, true);
+    }
+
+    /**
+     * Constructs a new Magazine, optionally skipping validation of already trusted values
+     * such as those restored from a snapshot.
+     *
+     * @param title         the title of the magazine
+     * @param author        the author of the magazine
+     * @param yearPublished the year the magazine was published
+     * @param validate      true to validate the values, false if they are already known to be valid
+     */
+    Magazine(final String title,
+             final String author,
+             final int yearPublished,
+             final boolean validate)
     {
         super(yearPublished);
 
-        validateTitle(title);
-        validateAuthor(author);
-        validateYearPublished(yearPublished);
+        if(validate)
+        {
+            validateTitle(title);
+            validateAuthor(author);
+            validateYearPublished(yearPublished);
+        }
 
         this.title         = title;
         this.author        = author;
@@ -97,9 +118,11 @@ public class Magazine extends Literature
      * Sets the title of the magazine.
      *
      * @param title the new title of the magazine
+     * @throws IllegalArgumentException if the title is null or blank
      */
     public void setTitle(final String title)
     {
+        validateTitle(title);
         this.title = title;
     }
 
@@ -118,9 +141,11 @@ public class Magazine extends Literature
      * Sets the author of the magazine.
      *
      * @param author the new author of the magazine
+     * @throws IllegalArgumentException if the author is null or blank
      */
     public void setAuthor(final String author)
     {
+        validateAuthor(author);
         this.author = author;
     }
 
@@ -139,9 +164,11 @@ public class Magazine extends Literature
      * Sets the year the magazine was published.
      *
      * @param yearPublished the new publication year
+     * @throws IllegalArgumentException if the year is outside the accepted range
      */
     public void setYearPublished(final int yearPublished)
     {
+        validateYearPublished(yearPublished);
         this.yearPublished = yearPublished;
     }
 
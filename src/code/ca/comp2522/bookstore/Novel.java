@@ -28,12 +28,32 @@ public class Novel extends Literature implements Comparable<Novel>
     public Novel(final String title,
                  final String author,
                  final int yearPublished)
+    {
+        this(title, author, yearPublished, true);
+    }
+
+    /**
+     * Constructs a new Novel, optionally skipping validation of already trusted values
+     * such as those restored from a snapshot.
+     *
+     * @param title         the title of the novel
+     * @param author        the author of the novel
+     * @param yearPublished the year the novel was published
+     * @param validate      true to validate the values, false if they are already known to be valid
+     */
+    Novel(final String title,
+          final String author,
+          final int yearPublished,
+          final boolean validate)
     {
         super(yearPublished);
 
-        validateTitle(title);
-        validateAuthor(author);
-        validateYearPublished(yearPublished);
+        if(validate)
+        {
+            validateTitle(title);
+            validateAuthor(author);
+            validateYearPublished(yearPublished);
+        }
 
         this.title         = title;
         this.author        = author;
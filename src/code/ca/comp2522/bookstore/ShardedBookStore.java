@@ -0,0 +1,489 @@
+package ca.comp2522.bookstore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A bookstore whose items are partitioned across several independent {@link BookStore} shards
+ * by the hash of their title, ignoring case and extra whitespace as duplicate detection does, so
+ * every copy of a work lands in the same shard and duplicates are found there. Each shard owns its own book list, map and lock,
+ * so writes to different shards never contend. Queries are scattered to every shard in parallel and
+ * the partial results are merged into the answer a single bookstore would give.
+ * <p>
+ * Held books are changed through {@link #updateItem(Literature, Consumer)}, which takes the shard's
+ * write lock and moves a renamed book to the shard its new title belongs to.
+ *
+ * @param <T> the type of literature managed by the bookstore, which extends Literature
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class ShardedBookStore<T extends Literature> implements AutoCloseable
+{
+
+    private static final int MIN_SHARDS = 1; // A sharded store needs at least one shard
+
+    private final    String              storeName; // The name of the bookstore
+    private final    List<BookStore<T>>  shards; // The shards holding the items
+    private final    List<ReadWriteLock> locks; // One lock per shard, at the same index
+    private final    ExecutorService     executor; // Runs the per-shard part of each query
+    private volatile DuplicatePolicy     duplicatePolicy; // The policy every shard applies to duplicates
+
+    /*
+     * A position within one shard's sorted titles, used to merge the shards in order.
+     * The current title's lower-case sort key is computed once, when the cursor reaches it.
+     */
+    private static final class MergeCursor
+    {
+        private final List<String> titles; // The shard's titles in alphabetical order
+        private final int          shardIndex; // Breaks ties so equal titles keep shard order
+        private       int          position; // Index of the current title
+        private       String       currentKey; // The current title in lower case
+
+        private MergeCursor(final List<String> titles, final int shardIndex)
+        {
+            this.titles     = titles;
+            this.shardIndex = shardIndex;
+            this.position   = 0;
+            this.currentKey = titles.get(position).toLowerCase();
+        }
+
+        private String current()
+        {
+            return titles.get(position);
+        }
+
+        /*
+         * Moves to the next title.
+         *
+         * @return true if there is another title, false if the shard is exhausted
+         */
+        private boolean advance()
+        {
+            position++;
+            if(position < titles.size())
+            {
+                currentKey = titles.get(position).toLowerCase();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Constructs a new, empty ShardedBookStore with the given name and number of shards.
+     *
+     * @param storeName  the name of the bookstore
+     * @param shardCount the number of shards to partition the items across
+     */
+    public ShardedBookStore(final String storeName, final int shardCount)
+    {
+        if(shardCount < MIN_SHARDS)
+        {
+            throw new IllegalArgumentException("Shard count must be at least " + MIN_SHARDS);
+        }
+
+        this.storeName = storeName;
+        this.shards    = new ArrayList<>(shardCount);
+        this.locks     = new ArrayList<>(shardCount);
+        this.executor  = Executors.newFixedThreadPool(shardCount, task ->
+        {
+            final Thread thread = new Thread(task, storeName + " shard worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for(int i = 0; i < shardCount; i++)
+        {
+            shards.add(new BookStore<>(storeName + " #" + i, false));
+            locks.add(new ReentrantReadWriteLock());
+        }
+        this.duplicatePolicy = shards.get(0).getDuplicatePolicy();
+    }
+
+    /**
+     * Returns the name of the bookstore.
+     *
+     * @return the store name
+     */
+    public String getStoreName()
+    {
+        return storeName;
+    }
+
+    /**
+     * Adds a literature item to the shard chosen by its title, applying the duplicate policy.
+     *
+     * @param item the literature item to add
+     * @return true if the item is now in the store, false if it was rejected as a duplicate
+     */
+    public boolean addItem(final T item)
+    {
+        final int shardIndex = shardFor(item.getTitle());
+
+        locks.get(shardIndex).writeLock().lock();
+        try
+        {
+            return shards.get(shardIndex).addItem(item);
+        }
+        finally
+        {
+            locks.get(shardIndex).writeLock().unlock();
+        }
+    }
+
+    /**
+     * Changes a held item's title, author or year under its shard's write lock, keeping the shard's
+     * indexes current. If the change moves the item's title to another shard, the item is moved
+     * there; the duplicate policy applies to it as to any addition, and it is briefly absent from
+     * queries while it moves.
+     *
+     * @param item   the held item to change
+     * @param change the action that changes the item
+     * @return true if the item is held and the change was applied, false if the item is not in the store
+     */
+    public boolean updateItem(final T item, final Consumer<? super T> change)
+    {
+        final int from = shardFor(item.getTitle());
+        final int to;
+
+        int copies = BookStore.BEGINNING_COUNT;
+        locks.get(from).writeLock().lock();
+        try
+        {
+            if(!shards.get(from).updateItem(item, change))
+            {
+                return false;
+            }
+            to = shardFor(item.getTitle());
+            while(to != from && shards.get(from).removeItem(item))
+            {
+                copies++;
+            }
+        }
+        finally
+        {
+            locks.get(from).writeLock().unlock();
+        }
+
+        if(copies > 0)
+        {
+            locks.get(to).writeLock().lock();
+            try
+            {
+                for(int i = 0; i < copies; i++)
+                {
+                    shards.get(to).addItem(item);
+                }
+            }
+            finally
+            {
+                locks.get(to).writeLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets what every shard does with items that duplicate a work it already holds.
+     * The default is {@link DuplicatePolicy#KEEP_ALL}.
+     *
+     * @param duplicatePolicy the policy for later additions
+     */
+    public void setDuplicatePolicy(final DuplicatePolicy duplicatePolicy)
+    {
+        if(duplicatePolicy == null)
+        {
+            throw new IllegalArgumentException("Duplicate policy cannot be null");
+        }
+
+        for(int i = 0; i < shards.size(); i++)
+        {
+            locks.get(i).writeLock().lock();
+            try
+            {
+                shards.get(i).setDuplicatePolicy(duplicatePolicy);
+            }
+            finally
+            {
+                locks.get(i).writeLock().unlock();
+            }
+        }
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    /**
+     * Returns what is done with items that duplicate a work already in the store.
+     *
+     * @return the duplicate policy
+     */
+    public DuplicatePolicy getDuplicatePolicy()
+    {
+        return duplicatePolicy;
+    }
+
+    /**
+     * Returns the number of duplicate works offered to addItem so far, across all shards.
+     *
+     * @return the number of duplicates
+     */
+    public int getDuplicateCount()
+    {
+        int duplicateCount = BookStore.BEGINNING_COUNT;
+
+        for(final int shardCount : scatter(BookStore::getDuplicateCount))
+        {
+            duplicateCount += shardCount;
+        }
+        return duplicateCount;
+    }
+
+    /*
+     * Chooses the shard that holds the given title. Titles that differ only in case or whitespace
+     * go to the same shard, since they may be duplicates of each other.
+     *
+     * @param title the title to place
+     * @return the index of the shard
+     */
+    private int shardFor(final String title)
+    {
+        return Math.floorMod(FingerprintIndex.normalizeTitle(title).hashCode(), shards.size());
+    }
+
+    /**
+     * Returns the total number of items in all shards.
+     *
+     * @return the number of items
+     */
+    public int getItemCount()
+    {
+        int itemCount = BookStore.BEGINNING_COUNT;
+
+        for(final int shardCount : scatter(BookStore::getItemCount))
+        {
+            itemCount += shardCount;
+        }
+        return itemCount;
+    }
+
+    /**
+     * Checks if there is a book published in the specified year.
+     *
+     * @param year the year to check
+     * @return true if a book was published in the specified year, false otherwise
+     */
+    public boolean isThereABookWrittenIn(final int year)
+    {
+        return scatter(shard -> shard.isThereABookWrittenIn(year)).contains(true);
+    }
+
+    /**
+     * Counts the number of books whose titles contain the specified word (case-insensitive).
+     *
+     * @param word the word to search for in book titles
+     * @return the number of books containing the word
+     */
+    public int howManyBooksContain(final String word)
+    {
+        int bookCount = BookStore.BEGINNING_COUNT;
+
+        for(final int shardCount : scatter(shard -> shard.howManyBooksContain(word)))
+        {
+            bookCount += shardCount;
+        }
+        return bookCount;
+    }
+
+    /**
+     * Calculates the percentage of books published between the specified years (inclusive).
+     *
+     * @param first the starting year
+     * @param last  the ending year
+     * @return the percentage of books published between the specified years, or 0 if the bookstore is empty
+     */
+    public int whichPercentWrittenBetween(final int first, final int last)
+    {
+        int bookCount  = BookStore.BEGINNING_COUNT;
+        int totalCount = BookStore.BEGINNING_COUNT;
+
+        for(final int[] counts : scatter(shard -> new int[]{shard.countWrittenBetween(first, last),
+                                                            shard.getItemCount()}))
+        {
+            bookCount  += counts[0];
+            totalCount += counts[1];
+        }
+        return totalCount == 0
+               ? 0
+               : bookCount * BookStore.PERCENT_SHIFT / totalCount;
+    }
+
+    /**
+     * Finds and returns the oldest book in all shards.
+     *
+     * @return the oldest book, or null if the bookstore is empty
+     */
+    public T getOldestBook()
+    {
+        T oldestBook = null;
+
+        for(final T shardOldest : scatter(shard -> shard.getItemCount() == 0 ? null : shard.getOldestBook()))
+        {
+            if(shardOldest != null &&
+               (oldestBook == null || shardOldest.getYearPublished() < oldestBook.getYearPublished()))
+            {
+                oldestBook = shardOldest;
+            }
+        }
+        return oldestBook;
+    }
+
+    /**
+     * Finds the longest book title in all shards.
+     *
+     * @return the longest title, or null if the bookstore is empty
+     */
+    public String findLongestTitle()
+    {
+        String longestTitle = null;
+
+        for(final String shardLongest : scatter(shard -> shard.getItemCount() == 0 ? null : shard.findLongestTitle()))
+        {
+            if(shardLongest != null && (longestTitle == null || shardLongest.length() > longestTitle.length()))
+            {
+                longestTitle = shardLongest;
+            }
+        }
+        return longestTitle;
+    }
+
+    /**
+     * Returns a list of books whose titles are of the specified length.
+     * The books are grouped by shard, in shard order, and each shard's books are in the order they
+     * were added; unlike a single bookstore, the list is not in overall insertion order.
+     *
+     * @param titleLength the length of the title to search for
+     * @return a list of books with titles of the specified length
+     */
+    public List<T> getBooksThisLength(final int titleLength)
+    {
+        final List<T> booksOfLength = new ArrayList<>();
+
+        for(final List<T> shardBooks : scatter(shard -> shard.getBooksThisLength(titleLength)))
+        {
+            booksOfLength.addAll(shardBooks);
+        }
+        return booksOfLength;
+    }
+
+    /**
+     * Passes each book title to the given action in alphabetical order (case-insensitive).
+     * Each shard sorts its own titles in parallel and the sorted shards are then merged.
+     *
+     * @param action the action to perform on each title
+     */
+    public void forEachTitleInAlphaOrder(final Consumer<String> action)
+    {
+        final List<List<String>>         sortedShards;
+        final PriorityQueue<MergeCursor> queue;
+
+        sortedShards = scatter(shard ->
+                               {
+                                   final List<String> titles = new ArrayList<>(shard.getItemCount());
+                                   shard.forEachTitleInAlphaOrder(titles::add);
+                                   return titles;
+                               });
+        queue = new PriorityQueue<>(Comparator.comparing((MergeCursor cursor) -> cursor.currentKey)
+                                              .thenComparingInt(cursor -> cursor.shardIndex));
+
+        for(int i = 0; i < sortedShards.size(); i++)
+        {
+            if(!sortedShards.get(i).isEmpty())
+            {
+                queue.add(new MergeCursor(sortedShards.get(i), i));
+            }
+        }
+
+        while(!queue.isEmpty())
+        {
+            final MergeCursor cursor = queue.poll();
+
+            action.accept(cursor.current());
+            if(cursor.advance())
+            {
+                queue.add(cursor);
+            }
+        }
+    }
+
+    /*
+     * Runs a query against every shard in parallel, each under its shard's read lock.
+     *
+     * @param query the query to run on each shard
+     * @return the result from each shard, in shard order
+     */
+    private <R> List<R> scatter(final Function<BookStore<T>, R> query)
+    {
+        final List<Future<R>> futures = new ArrayList<>(shards.size());
+        final List<R>         results = new ArrayList<>(shards.size());
+
+        for(int i = 0; i < shards.size(); i++)
+        {
+            final BookStore<T>  shard = shards.get(i);
+            final ReadWriteLock lock  = locks.get(i);
+
+            futures.add(executor.submit(() ->
+                                        {
+                                            lock.readLock().lock();
+                                            try
+                                            {
+                                                return query.apply(shard);
+                                            }
+                                            finally
+                                            {
+                                                lock.readLock().unlock();
+                                            }
+                                        }));
+        }
+
+        try
+        {
+            for(final Future<R> future : futures)
+            {
+                results.add(future.get());
+            }
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        }
+        catch(final ExecutionException e)
+        {
+            if(e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Stops the threads used to query the shards.
+     */
+    @Override
+    public void close()
+    {
+        executor.shutdown();
+    }
+}
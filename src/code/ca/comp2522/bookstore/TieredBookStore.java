@@ -0,0 +1,505 @@
+package ca.comp2522.bookstore;
+
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelReader;
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A bookstore for catalogs that do not fit comfortably in the heap.
+ * <p>
+ * Only compact per-item metadata (year, title length and type) is kept in memory, in primitive
+ * arrays. Titles and authors are appended to an on-disk segment file, and a bounded cache keeps
+ * the most recently used items resident. Year and title-length queries filter on the in-memory
+ * metadata first and only read the segment for items that match; title searches, listings and
+ * sorted output have to read every title and do so with one sequential pass over the segment,
+ * through a single reader and buffer that are kept open with the store.
+ * <p>
+ * The store holds its own copies of the items it is given. Items returned by queries may be shared
+ * with the cache, so callers must not change them.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class TieredBookStore implements AutoCloseable
+{
+
+    private static final int   INITIAL_CAPACITY = 1024; // Initial length of the metadata arrays
+    private static final int   GROWTH_FACTOR    = 2; // Multiplier applied when the arrays are full
+    private static final float CACHE_LOAD       = 0.75f; // Load factor of the item cache
+    private static final int   NOT_FOUND        = -1; // Index returned when no item matches
+
+    private final String                   storeName; // The name of the bookstore
+    private final Path                     segmentFile; // The path of the segment file
+    private final FileChannel              segment; // The segment file holding titles and authors
+    private final ChannelWriter            appender; // Buffers appends to the segment
+    private final ChannelReader            scanner; // Reads the whole segment sequentially, reused by every scan
+    private final Map<Integer, Literature> cache; // Recently used items, least recently used first
+    private final YearColumn               years; // Year of publication of each item
+    private       int[]                    titleLengths; // Title length of each item
+    private       byte[]                   types; // Type code of each item
+    private       long[]                   offsets; // Segment offset of each item, plus the end offset
+    private       long                     flushedOffset; // Segment bytes known to be on disk
+    private       int                      itemCount; // The number of items in the bookstore
+
+    /*
+     * Receives each record of a sequential segment scan.
+     */
+    @FunctionalInterface
+    private interface RecordVisitor
+    {
+        void accept(int index, String title, String author) throws IOException;
+    }
+
+    /**
+     * Constructs a new, empty TieredBookStore backed by the given segment file.
+     * Any existing file at that path is replaced.
+     *
+     * @param storeName      the name of the bookstore
+     * @param segmentFile    the file that holds item titles and authors
+     * @param maxCachedItems the maximum number of items kept in the heap cache
+     * @throws IOException if the segment file cannot be created
+     */
+    public TieredBookStore(final String storeName,
+                           final Path segmentFile,
+                           final int maxCachedItems) throws IOException
+    {
+        if(maxCachedItems < 0)
+        {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+
+        this.storeName     = storeName;
+        this.segmentFile   = segmentFile;
+        this.segment       = FileChannel.open(segmentFile,
+                                              StandardOpenOption.CREATE,
+                                              StandardOpenOption.TRUNCATE_EXISTING,
+                                              StandardOpenOption.READ,
+                                              StandardOpenOption.WRITE);
+        this.appender      = new ChannelWriter(segment);
+        this.scanner       = new ChannelReader(FileChannel.open(segmentFile, StandardOpenOption.READ));
+        this.cache         = new LinkedHashMap<>(INITIAL_CAPACITY, CACHE_LOAD, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, Literature> eldest)
+            {
+                return size() > maxCachedItems;
+            }
+        };
+        this.years         = new YearColumn();
+        this.titleLengths  = new int[INITIAL_CAPACITY];
+        this.types         = new byte[INITIAL_CAPACITY];
+        this.offsets       = new long[INITIAL_CAPACITY + 1];
+        this.flushedOffset = 0L;
+        this.itemCount     = BookStore.BEGINNING_COUNT;
+    }
+
+    /**
+     * Returns the name of the bookstore.
+     *
+     * @return the store name
+     */
+    public String getStoreName()
+    {
+        return storeName;
+    }
+
+    /**
+     * Returns the number of items in the bookstore.
+     *
+     * @return the item count
+     */
+    public synchronized int getItemCount()
+    {
+        return itemCount;
+    }
+
+    /**
+     * Adds a literature item, keeping its metadata in memory and appending its title and author to the segment.
+     * The store keeps its own copy of the item, so changing the item afterwards does not change the store.
+     *
+     * @param item the literature item to add
+     * @throws UncheckedIOException if the segment cannot be written
+     */
+    public synchronized void addItem(final Literature item)
+    {
+        final byte       type = BookStoreSnapshot.typeOf(item);
+        final Literature copy;
+
+        if(itemCount == titleLengths.length)
+        {
+            final int capacity = titleLengths.length * GROWTH_FACTOR;
+
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+            types        = Arrays.copyOf(types, capacity);
+            offsets      = Arrays.copyOf(offsets, capacity + 1);
+        }
+
+        try
+        {
+            copy = BookStoreSnapshot.createTrusted(type, item.getTitle(), item.getAuthor(), item.getYearPublished());
+            appender.writeString(copy.getTitle());
+            appender.writeString(copy.getAuthor());
+            offsets[itemCount + 1] = appender.position();
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException("Could not append to segment", e);
+        }
+
+        years.add(copy.getYearPublished());
+        titleLengths[itemCount] = copy.getTitle().length();
+        types[itemCount]        = type;
+        cache.put(itemCount, copy);
+        itemCount++;
+    }
+
+    /**
+     * Checks if there is a book published in the specified year. Reads no payloads.
+     *
+     * @param year the year to check
+     * @return true if a book was published in the specified year, false otherwise
+     */
+    public synchronized boolean isThereABookWrittenIn(final int year)
+    {
+        return years.contains(year);
+    }
+
+    /**
+     * Calculates the percentage of books published between the specified years (inclusive). Reads no payloads.
+     *
+     * @param first the starting year
+     * @param last  the ending year
+     * @return the percentage of books published between the specified years
+     */
+    public synchronized int whichPercentWrittenBetween(final int first, final int last)
+    {
+        return itemCount == 0 ? 0 : years.countInRange(first, last) * BookStore.PERCENT_SHIFT / itemCount;
+    }
+
+    /**
+     * Finds and returns the oldest book, reading only that book's payload.
+     *
+     * @return the oldest book, or null if the bookstore is empty
+     */
+    public synchronized Literature getOldestBook()
+    {
+        final int oldestIndex = years.indexOfMin();
+
+        return oldestIndex == NOT_FOUND ? null : load(oldestIndex);
+    }
+
+    /**
+     * Returns a list of books whose titles are of the specified length, reading only the matching payloads.
+     *
+     * @param titleLength the length of the title to search for
+     * @return a list of books with titles of the specified length
+     */
+    public synchronized List<Literature> getBooksThisLength(final int titleLength)
+    {
+        final List<Literature> booksOfLength = new ArrayList<>();
+
+        for(int i = 0; i < itemCount; i++)
+        {
+            if(titleLengths[i] == titleLength)
+            {
+                booksOfLength.add(load(i));
+            }
+        }
+        return booksOfLength;
+    }
+
+    /**
+     * Returns the books published in the specified decade, reading only the matching payloads.
+     *
+     * @param decade a year in the decade (e.g., 2000 for the 2000s)
+     * @return the books published in that decade
+     */
+    public synchronized List<Literature> getBooksInDecade(final int decade)
+    {
+        final int              startDecade = decade - (decade % BookStore.DECADE_IN_YEARS);
+        final int              endDecade   = startDecade + BookStore.DECADE_IN_YEARS;
+        final List<Literature> books       = new ArrayList<>();
+
+        years.forEachInRange(startDecade, endDecade - 1, index -> books.add(load(index)));
+        return books;
+    }
+
+    /**
+     * Counts the number of books whose titles contain the specified word (case-insensitive).
+     * Titles are not held in memory, so this reads the whole segment sequentially without filling the cache.
+     *
+     * @param word the word to search for in book titles
+     * @return the number of books containing the word
+     * @throws UncheckedIOException if the segment cannot be read
+     */
+    public synchronized int howManyBooksContain(final String word)
+    {
+        final String upperWord = word.toUpperCase();
+        final int[]  bookCount = {BookStore.BEGINNING_COUNT};
+
+        try
+        {
+            scanSegment((index, title, author) ->
+            {
+                if(title.toUpperCase().contains(upperWord))
+                {
+                    bookCount[0]++;
+                }
+            });
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException("Could not read segment", e);
+        }
+        return bookCount[0];
+    }
+
+    /**
+     * Finds the longest book title, reading only that book's payload.
+     * Of titles with the same length, the one added first is returned.
+     *
+     * @return the longest title, or null if the bookstore is empty
+     */
+    public synchronized String findLongestTitle()
+    {
+        int longestIndex = NOT_FOUND;
+
+        for(int i = 0; i < itemCount; i++)
+        {
+            if(longestIndex == NOT_FOUND || titleLengths[i] > titleLengths[longestIndex])
+            {
+                longestIndex = i;
+            }
+        }
+        return longestIndex == NOT_FOUND ? null : load(longestIndex).getTitle();
+    }
+
+    /**
+     * Passes every item to the action in the order they were added.
+     * This reads the whole segment sequentially without filling the cache.
+     *
+     * @param action the action to perform on each item
+     * @throws UncheckedIOException if the segment cannot be read
+     */
+    public synchronized void forEachItem(final Consumer<? super Literature> action)
+    {
+        try
+        {
+            scanSegment((index, title, author) ->
+                action.accept(BookStoreSnapshot.createTrusted(types[index], title, author, years.get(index))));
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException("Could not read segment", e);
+        }
+    }
+
+    /**
+     * Prints each item's type and title, in the order they were added.
+     *
+     * @throws UncheckedIOException if the segment cannot be read
+     */
+    public void printItems()
+    {
+        forEachItem(item ->
+        {
+            if(item instanceof ComicBook)
+            {
+                System.out.println("Comic: " + item.getTitle());
+            }
+            else if(item instanceof Magazine)
+            {
+                System.out.println("Magazine: " + item.getTitle());
+            }
+            else if(item instanceof Novel)
+            {
+                System.out.println("Novel: " + item.getTitle());
+            }
+        });
+    }
+
+    /**
+     * Counts the items of the given type from the in-memory metadata. Reads no payloads.
+     *
+     * @param type the literature type, such as Novel.class
+     * @return the number of items of that type
+     */
+    public synchronized int countItemsOfType(final Class<? extends Literature> type)
+    {
+        final byte code  = BookStoreSnapshot.typeOf(type);
+        int        count = BookStore.BEGINNING_COUNT;
+
+        for(int i = 0; i < itemCount; i++)
+        {
+            if(types[i] == code)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds all novels in the bookstore to the provided collection, reading only the novels' payloads.
+     *
+     * @param novelCollection the collection to which novels will be added
+     * @throws UncheckedIOException if the segment cannot be read
+     */
+    public synchronized void addNovelsToCollection(final List<? super Novel> novelCollection)
+    {
+        final byte novel = BookStoreSnapshot.typeOf(Novel.class);
+
+        for(int i = 0; i < itemCount; i++)
+        {
+            if(types[i] == novel)
+            {
+                novelCollection.add((Novel) load(i));
+            }
+        }
+    }
+
+    /**
+     * Passes every title to the action in case-insensitive alphabetical order, holding at most the
+     * given number of titles in memory. Titles that compare equal keep the order they were added.
+     *
+     * @param action     the action to perform on each title
+     * @param maxRunSize the most titles to sort in memory at once
+     * @throws IOException if the segment or the temporary files cannot be read or written
+     */
+    public synchronized void exportTitlesInAlphaOrder(final Consumer<String> action,
+                                                      final int maxRunSize) throws IOException
+    {
+        try(ExternalSorter sorter = new ExternalSorter(maxRunSize))
+        {
+            scanSegment((index, title, author) -> sorter.add(title.toLowerCase(), title));
+            sorter.forEachSorted(action);
+        }
+    }
+
+    /*
+     * Reads every record in the segment in order, passing each to the visitor.
+     *
+     * @param visitor the visitor to pass each record to
+     */
+    private void scanSegment(final RecordVisitor visitor) throws IOException
+    {
+        flushAppends();
+        scanner.rewind();
+        for(int i = 0; i < itemCount; i++)
+        {
+            final String title  = scanner.readString();
+            final String author = scanner.readString();
+
+            visitor.accept(i, title, author);
+        }
+    }
+
+    /*
+     * Returns an item from the cache, or reads it from the segment and caches it.
+     *
+     * @param index the index of the item
+     * @return the item
+     */
+    private Literature load(final int index)
+    {
+        final Literature cached = cache.get(index);
+        final ByteBuffer record;
+        final Literature item;
+
+        if(cached != null)
+        {
+            return cached;
+        }
+
+        if(offsets[index + 1] > flushedOffset)
+        {
+            flushAppends();
+        }
+
+        try
+        {
+            record = ByteBuffer.allocate((int) (offsets[index + 1] - offsets[index]));
+            while(record.hasRemaining())
+            {
+                if(segment.read(record, offsets[index] + record.position()) < 0)
+                {
+                    throw new IOException("Segment ended in the middle of an item");
+                }
+            }
+            record.flip();
+            item = BookStoreSnapshot.createTrusted(types[index],
+                                                   getString(record),
+                                                   getString(record),
+                                                   years.get(index));
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException("Could not read item " + index + " from segment", e);
+        }
+
+        cache.put(index, item);
+        return item;
+    }
+
+    /*
+     * Reads a length-prefixed UTF-8 string from a record.
+     *
+     * @param record the record to read from
+     * @return the string
+     */
+    private static String getString(final ByteBuffer record)
+    {
+        final byte[] bytes = new byte[record.getInt()];
+
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Writes any buffered appends to the segment file.
+     */
+    private void flushAppends()
+    {
+        try
+        {
+            appender.flush();
+            flushedOffset = offsets[itemCount];
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException("Could not write segment", e);
+        }
+    }
+
+    /**
+     * Closes the segment file. The in-memory metadata is discarded with the store.
+     *
+     * @throws IOException if the segment cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        try
+        {
+            scanner.close();
+        }
+        finally
+        {
+            appender.close();
+        }
+    }
+}
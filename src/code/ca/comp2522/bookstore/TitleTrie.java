@@ -0,0 +1,581 @@
+package ca.comp2522.bookstore;
+
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelReader;
+import ca.comp2522.bookstore.BookStoreSnapshot.ChannelWriter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToIntFunction;
+
+/**
+ * A compact radix trie over lower-case book titles, used to answer title-prefix autocomplete queries.
+ * Chains of single-child nodes are collapsed into one edge label, so the trie holds roughly one node
+ * per title plus one per branching point. Items can be added and removed incrementally, and the
+ * whole structure can be saved to a snapshot and restored without re-inserting every title.
+ *
+ * @param <T> the type of literature stored in the trie, which extends Literature
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+class TitleTrie<T extends Literature>
+{
+
+    private static final int    ROOT_DEPTH  = 0; // Key offset at the root of the trie
+    private static final String EMPTY_LABEL = ""; // Edge label of the root node
+
+    private final Node<T> root; // The root node, whose label is always empty
+    private       int     size; // The number of items in the trie
+
+    /*
+     * A node of the trie. The node's key is the concatenation of the labels on the path from the root.
+     */
+    private static final class Node<T>
+    {
+        private String        label; // The part of the key on the edge into this node
+        private List<Node<T>> children; // Child nodes sorted by the first character of their label, or null
+        private List<T>       items; // Items whose key ends at this node, or null
+
+        private Node(final String label)
+        {
+            this.label = label;
+        }
+
+        private boolean isEmpty()
+        {
+            return items == null && children == null;
+        }
+    }
+
+    /**
+     * Constructs a new, empty TitleTrie.
+     */
+    TitleTrie()
+    {
+        this.root = new Node<>(EMPTY_LABEL);
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of items in the trie.
+     *
+     * @return the item count
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds an item under its title.
+     *
+     * @param item the item to add
+     */
+    void add(final T item)
+    {
+        final String key = toKey(item.getTitle());
+
+        Node<T> node  = root;
+        int     depth = ROOT_DEPTH;
+
+        while(depth < key.length())
+        {
+            final int     index = childIndex(node, key.charAt(depth));
+            final Node<T> child;
+            final int     common;
+
+            if(index < 0)
+            {
+                final Node<T> leaf = new Node<>(key.substring(depth));
+                insertChild(node, -index - 1, leaf);
+                node  = leaf;
+                depth = key.length();
+                continue;
+            }
+
+            child  = node.children.get(index);
+            common = commonPrefixLength(child.label, key, depth);
+            if(common < child.label.length())
+            {
+                final Node<T> split = new Node<>(child.label.substring(0, common));
+
+                child.label    = child.label.substring(common);
+                split.children = new ArrayList<>(1);
+                split.children.add(child);
+                node.children.set(index, split);
+                node = split;
+            }
+            else
+            {
+                node = child;
+            }
+            depth += common;
+        }
+
+        if(node.items == null)
+        {
+            node.items = new ArrayList<>(1);
+        }
+        node.items.add(item);
+        size++;
+    }
+
+    /**
+     * Removes an item, compared by identity, merging nodes that are no longer needed.
+     * The item is looked for under its current title. {@link BookStore#updateItem} takes an item out
+     * of the trie before changing its title, so in normal use it is always found there. As a
+     * defensive path, an item not filed under its current title (because a setter was called on a
+     * held item directly) is searched for through the whole trie, which visits every node.
+     *
+     * @param item the item to remove
+     * @return true if the item was in the trie, false otherwise
+     */
+    boolean remove(final T item)
+    {
+        final String         key  = toKey(item.getTitle());
+        final Deque<Node<T>> path = new ArrayDeque<>();
+
+        Node<T> node  = root;
+        int     depth = ROOT_DEPTH;
+
+        while(depth < key.length())
+        {
+            final int index = childIndex(node, key.charAt(depth));
+
+            if(index < 0 || !key.startsWith(node.children.get(index).label, depth))
+            {
+                return removeAnywhere(root, item, new ArrayDeque<>());
+            }
+            path.push(node);
+            node   = node.children.get(index);
+            depth += node.label.length();
+        }
+
+        if(node.items == null || !removeIdentical(node.items, item))
+        {
+            return removeAnywhere(root, item, new ArrayDeque<>());
+        }
+        compact(node, path);
+        return true;
+    }
+
+    /*
+     * Searches the subtree below a node for the item and removes it, wherever it is filed.
+     * Only reached when the item is not filed under its current title; see remove.
+     *
+     * @param node the root of the subtree to search
+     * @param item the item to remove
+     * @param path the ancestors of the node, nearest first
+     * @return true if the item was found and removed, false otherwise
+     */
+    private boolean removeAnywhere(final Node<T> node,
+                                   final T item,
+                                   final Deque<Node<T>> path)
+    {
+        if(node.items != null && removeIdentical(node.items, item))
+        {
+            compact(node, path);
+            return true;
+        }
+
+        if(node.children != null)
+        {
+            path.push(node);
+            for(final Node<T> child : node.children)
+            {
+                if(removeAnywhere(child, item, path))
+                {
+                    return true;
+                }
+            }
+            path.pop();
+        }
+        return false;
+    }
+
+    /*
+     * Finishes a removal from the given node: updates the size and prunes or merges nodes on the
+     * path back to the root that are no longer needed.
+     *
+     * @param removedFrom the node the item was removed from
+     * @param path        the ancestors of the node, nearest first
+     */
+    private void compact(final Node<T> removedFrom, final Deque<Node<T>> path)
+    {
+        Node<T> node = removedFrom;
+
+        if(node.items.isEmpty())
+        {
+            node.items = null;
+        }
+        size--;
+
+        while(!path.isEmpty())
+        {
+            final Node<T> parent = path.pop();
+
+            if(node.isEmpty())
+            {
+                parent.children.remove(node);
+                if(parent.children.isEmpty())
+                {
+                    parent.children = null;
+                }
+            }
+            else if(node.items == null && node.children.size() == 1)
+            {
+                final Node<T> onlyChild = node.children.get(0);
+
+                onlyChild.label = node.label + onlyChild.label;
+                parent.children.set(parent.children.indexOf(node), onlyChild);
+            }
+            node = parent;
+        }
+    }
+
+    /**
+     * Returns up to the given number of items whose titles start with the prefix (case-insensitive),
+     * in alphabetical order of title.
+     *
+     * @param prefix the title prefix to complete
+     * @param limit  the maximum number of items to return
+     * @return the matching items
+     */
+    List<T> complete(final String prefix, final int limit)
+    {
+        final List<T>        matches = new ArrayList<>();
+        final Deque<Node<T>> stack   = new ArrayDeque<>();
+        final Node<T>        start   = findPrefixNode(toKey(prefix));
+
+        if(start != null)
+        {
+            stack.push(start);
+        }
+
+        while(!stack.isEmpty() && matches.size() < limit)
+        {
+            final Node<T> node = stack.pop();
+
+            if(node.items != null)
+            {
+                for(final T item : node.items)
+                {
+                    if(matches.size() < limit)
+                    {
+                        matches.add(item);
+                    }
+                }
+            }
+            if(node.children != null)
+            {
+                for(int i = node.children.size() - 1; i >= 0; i--)
+                {
+                    stack.push(node.children.get(i));
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the top items, by the given ranking, whose titles start with the prefix (case-insensitive).
+     * The ranking is only known at query time, so no subtree can be skipped: every match under the
+     * prefix is visited, and the best are kept in a heap of the given size. The cost is linear in the
+     * number of matches, which for a one-character prefix can be a large part of the catalog.
+     *
+     * @param prefix  the title prefix to complete
+     * @param limit   the maximum number of items to return
+     * @param ranking orders the items, best first
+     * @return the best matching items, in ranking order
+     */
+    List<T> complete(final String prefix,
+                     final int limit,
+                     final Comparator<? super T> ranking)
+    {
+        final PriorityQueue<T> best    = new PriorityQueue<>(Math.max(1, limit), ranking.reversed());
+        final Deque<Node<T>>   stack   = new ArrayDeque<>();
+        final Node<T>          start   = findPrefixNode(toKey(prefix));
+        final List<T>          matches;
+
+        if(start != null && limit > 0)
+        {
+            stack.push(start);
+        }
+
+        while(!stack.isEmpty())
+        {
+            final Node<T> node = stack.pop();
+
+            if(node.items != null)
+            {
+                for(final T item : node.items)
+                {
+                    best.add(item);
+                    if(best.size() > limit)
+                    {
+                        best.poll();
+                    }
+                }
+            }
+            if(node.children != null)
+            {
+                node.children.forEach(stack::push);
+            }
+        }
+
+        matches = new ArrayList<>(best);
+        matches.sort(ranking);
+        return matches;
+    }
+
+    /**
+     * Writes the trie to a snapshot in preorder: each node's label, the list positions of its items,
+     * then its children.
+     *
+     * @param out        the snapshot writer
+     * @param positionOf returns the list position of an item
+     * @throws IOException if the snapshot cannot be written
+     */
+    void writeTo(final ChannelWriter out, final ToIntFunction<? super T> positionOf) throws IOException
+    {
+        writeNode(out, root, positionOf);
+    }
+
+    /*
+     * Writes a node and its subtree.
+     */
+    private static <T> void writeNode(final ChannelWriter out,
+                                      final Node<T> node,
+                                      final ToIntFunction<? super T> positionOf) throws IOException
+    {
+        out.writeString(node.label);
+        out.writeInt(node.items == null ? 0 : node.items.size());
+        if(node.items != null)
+        {
+            for(final T item : node.items)
+            {
+                out.writeInt(positionOf.applyAsInt(item));
+            }
+        }
+
+        out.writeInt(node.children == null ? 0 : node.children.size());
+        if(node.children != null)
+        {
+            for(final Node<T> child : node.children)
+            {
+                writeNode(out, child, positionOf);
+            }
+        }
+    }
+
+    /**
+     * Fills this empty trie from a snapshot written by {@link #writeTo(ChannelWriter, ToIntFunction)}.
+     *
+     * @param in    the snapshot reader
+     * @param books the restored book list the item positions refer to
+     * @throws IOException if the snapshot cannot be read or the trie is corrupt
+     */
+    void readFrom(final ChannelReader in, final List<? extends T> books) throws IOException
+    {
+        final Node<T> restored;
+
+        if(size != 0)
+        {
+            throw new IllegalStateException("Trie must be empty before it is restored");
+        }
+
+        restored = readNode(in, books);
+        if(!restored.label.isEmpty())
+        {
+            throw new IOException("Corrupt snapshot: trie root has a label");
+        }
+        root.items    = restored.items;
+        root.children = restored.children;
+    }
+
+    /*
+     * Reads a node and its subtree, counting its items into the trie's size.
+     */
+    private Node<T> readNode(final ChannelReader in, final List<? extends T> books) throws IOException
+    {
+        final Node<T> node       = new Node<>(in.readString());
+        final int     itemCount  = in.readCount();
+        final int     childCount;
+
+        if(itemCount > 0)
+        {
+            node.items = new ArrayList<>(itemCount);
+            for(int i = 0; i < itemCount; i++)
+            {
+                final int position = in.readInt();
+
+                if(position < 0 || position >= books.size())
+                {
+                    throw new IOException("Corrupt snapshot: trie refers to a missing book");
+                }
+                node.items.add(books.get(position));
+            }
+            size += itemCount;
+        }
+
+        childCount = in.readCount();
+        if(childCount > 0)
+        {
+            node.children = new ArrayList<>(childCount);
+            for(int i = 0; i < childCount; i++)
+            {
+                final Node<T> child = readNode(in, books);
+
+                if(child.label.isEmpty() || (i > 0 && node.children.get(i - 1).label.charAt(0) >= child.label.charAt(0)))
+                {
+                    throw new IOException("Corrupt snapshot: trie children are out of order");
+                }
+                node.children.add(child);
+            }
+        }
+        return node;
+    }
+
+    /*
+     * Finds the highest node whose key starts with the prefix.
+     *
+     * @param prefix the lower-case prefix
+     * @return the node, or null if no key starts with the prefix
+     */
+    private Node<T> findPrefixNode(final String prefix)
+    {
+        Node<T> node  = root;
+        int     depth = ROOT_DEPTH;
+
+        while(depth < prefix.length())
+        {
+            final int     index = childIndex(node, prefix.charAt(depth));
+            final Node<T> child;
+            final int     common;
+
+            if(index < 0)
+            {
+                return null;
+            }
+
+            child  = node.children.get(index);
+            common = commonPrefixLength(child.label, prefix, depth);
+            if(common < child.label.length() && depth + common < prefix.length())
+            {
+                return null;
+            }
+            node   = child;
+            depth += common;
+        }
+        return node;
+    }
+
+    /*
+     * Finds the child whose label starts with the given character.
+     *
+     * @param node  the parent node
+     * @param first the first character of the label
+     * @return the child's index, or (-(insertion point) - 1) if there is no such child
+     */
+    private static <T> int childIndex(final Node<T> node, final char first)
+    {
+        int low  = 0;
+        int high = node.children == null ? -1 : node.children.size() - 1;
+
+        while(low <= high)
+        {
+            final int  middle = (low + high) >>> 1;
+            final char label  = node.children.get(middle).label.charAt(0);
+
+            if(label < first)
+            {
+                low = middle + 1;
+            }
+            else if(label > first)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /*
+     * Inserts a child at the given sorted position.
+     *
+     * @param node  the parent node
+     * @param index the position to insert at
+     * @param child the child to insert
+     */
+    private static <T> void insertChild(final Node<T> node,
+                                        final int index,
+                                        final Node<T> child)
+    {
+        if(node.children == null)
+        {
+            node.children = new ArrayList<>(1);
+        }
+        node.children.add(index, child);
+    }
+
+    /*
+     * Counts how many characters of the label match the key starting at the given offset.
+     *
+     * @param label  the edge label
+     * @param key    the key being looked up
+     * @param offset the offset into the key
+     * @return the length of the common prefix
+     */
+    private static int commonPrefixLength(final String label,
+                                          final String key,
+                                          final int offset)
+    {
+        final int maxLength = Math.min(label.length(), key.length() - offset);
+
+        int length = 0;
+        while(length < maxLength && label.charAt(length) == key.charAt(offset + length))
+        {
+            length++;
+        }
+        return length;
+    }
+
+    /*
+     * Removes the given item, compared by identity, from the list.
+     *
+     * @param items the list to remove from
+     * @param item  the item to remove
+     * @return true if the item was removed, false otherwise
+     */
+    private static <T> boolean removeIdentical(final List<T> items, final T item)
+    {
+        for(int i = 0; i < items.size(); i++)
+        {
+            if(items.get(i) == item)
+            {
+                items.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Converts a title or prefix into a trie key.
+     *
+     * @param title the title or prefix
+     * @return the lower-case key
+     */
+    private static String toKey(final String title)
+    {
+        return title.toLowerCase();
+    }
+}
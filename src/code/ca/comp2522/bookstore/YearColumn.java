@@ -0,0 +1,214 @@
+package ca.comp2522.bookstore;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A primitive column of publication years, kept in the same order as the books it describes.
+ * Year queries scan this array directly instead of calling {@code getYearPublished()} on each book.
+ * The range kernel folds both bound checks into a single biased comparison with no branch,
+ * which keeps its loop simple enough for the JIT to unroll and vectorize.
+ * <p>
+ * A year is recorded when its book is added. If a held book's year is changed afterwards through
+ * {@link BookStore#updateItem}, the store updates the column with {@link #set(int, int)}.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+class YearColumn
+{
+
+    private static final int INITIAL_CAPACITY = 16; // Initial length of the year array
+    private static final int GROWTH_FACTOR    = 2; // Multiplier applied when the array is full
+    private static final int NOT_FOUND        = -1; // Index returned when no year matches
+
+    private int[] years; // The years, with unused capacity at the end
+    private int   size; // The number of years in the column
+
+    /**
+     * Constructs a new, empty YearColumn.
+     */
+    YearColumn()
+    {
+        this.years = new int[INITIAL_CAPACITY];
+        this.size  = 0;
+    }
+
+    /**
+     * Returns the number of years in the column.
+     *
+     * @return the size of the column
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the year at the given index.
+     *
+     * @param index the index of the book
+     * @return the year the book was published
+     */
+    int get(final int index)
+    {
+        return years[index];
+    }
+
+    /**
+     * Appends a year to the end of the column.
+     *
+     * @param year the year to append
+     */
+    void add(final int year)
+    {
+        if(size == years.length)
+        {
+            years = Arrays.copyOf(years, years.length * GROWTH_FACTOR);
+        }
+        years[size] = year;
+        size++;
+    }
+
+    /**
+     * Replaces the year at the given index.
+     *
+     * @param index the index of the book
+     * @param year  the new year
+     */
+    void set(final int index, final int year)
+    {
+        years[index] = year;
+    }
+
+    /**
+     * Removes the year at the given index, shifting later years down.
+     *
+     * @param index the index to remove
+     */
+    void remove(final int index)
+    {
+        System.arraycopy(years, index + 1, years, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * Checks if any year in the column equals the given year.
+     *
+     * @param year the year to look for
+     * @return true if the year is present, false otherwise
+     */
+    boolean contains(final int year)
+    {
+        final int[] column = years;
+
+        for(int i = 0; i < size; i++)
+        {
+            if(column[i] == year)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the years between the given bounds (inclusive).
+     *
+     * @param first the lowest year to count
+     * @param last  the highest year to count
+     * @return the number of years in the range
+     */
+    int countInRange(final int first, final int last)
+    {
+        final int[] column = years;
+        final int   bound  = biasedSpan(first, last);
+
+        int count = 0;
+
+        if(last < first)
+        {
+            return count;
+        }
+
+        for(int i = 0; i < size; i++)
+        {
+            count += biasedOffset(column[i], first) <= bound ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Passes the index of every year between the given bounds (inclusive) to the action, in order.
+     *
+     * @param first  the lowest year to match
+     * @param last   the highest year to match
+     * @param action the action to perform on each matching index
+     */
+    void forEachInRange(final int first,
+                        final int last,
+                        final IntConsumer action)
+    {
+        final int[] column = years;
+        final int   bound  = biasedSpan(first, last);
+
+        if(last < first)
+        {
+            return;
+        }
+
+        for(int i = 0; i < size; i++)
+        {
+            if(biasedOffset(column[i], first) <= bound)
+            {
+                action.accept(i);
+            }
+        }
+    }
+
+    /**
+     * Finds the index of the earliest year, taking the first one if several are equal.
+     *
+     * @return the index of the smallest year, or -1 if the column is empty
+     */
+    int indexOfMin()
+    {
+        int minIndex = size == 0 ? NOT_FOUND : 0;
+
+        for(int i = 1; i < size; i++)
+        {
+            if(years[i] < years[minIndex])
+            {
+                minIndex = i;
+            }
+        }
+        return minIndex;
+    }
+
+    /*
+     * Returns the width of a range, biased so that a signed comparison against it acts as an
+     * unsigned one. Together with biasedOffset this turns first <= year <= last into one comparison.
+     *
+     * @param first the lowest year in the range
+     * @param last  the highest year in the range
+     * @return the biased width of the range
+     */
+    private static int biasedSpan(final int first, final int last)
+    {
+        return last - first + Integer.MIN_VALUE;
+    }
+
+    /*
+     * Returns a year's offset from the start of a range, biased to match biasedSpan.
+     * Years below the range wrap around to large unsigned offsets, so they fail the comparison too.
+     *
+     * @param year  the year to place
+     * @param first the lowest year in the range
+     * @return the biased offset of the year
+     */
+    private static int biasedOffset(final int year, final int first)
+    {
+        return year - first + Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,220 @@
+package ca.comp2522.bookstore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Demand and cancellation tests for {@link BookPublisher}. Items are delivered on the calling
+ * thread, so every signal has arrived by the time a request or cancel returns and the tests need
+ * no waiting. A failed check throws an AssertionError.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class BookPublisherTest
+{
+
+    private static final int    BOOK_COUNT   = 10; // Books in the test store
+    private static final int    FIRST_BATCH  = 3; // Items requested first in the demand test
+    private static final int    CANCEL_AFTER = 4; // Books examined before the in-progress scan is cancelled
+    private static final String WORD         = "Book"; // Contained in every test title
+
+    /**
+     * Runs every publisher test.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        deliversOnlyWhatIsRequested();
+        completesOnceTheScanIsExhausted();
+        stopsAfterCancel();
+        stopsAScanInProgress();
+        reportsANonPositiveRequest();
+        System.out.println("BookPublisherTest passed");
+    }
+
+    /*
+     * Nothing is delivered before a request, and each request delivers exactly that many items.
+     */
+    private static void deliversOnlyWhatIsRequested()
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher(sampleBooks()).subscribe(subscriber);
+        check(subscriber.items.isEmpty(), "items delivered before any request");
+
+        subscriber.subscription.request(FIRST_BATCH);
+        check(subscriber.items.size() == FIRST_BATCH, "first request delivered " + subscriber.items.size());
+
+        subscriber.subscription.request(1);
+        check(subscriber.items.size() == FIRST_BATCH + 1, "second request delivered " + subscriber.items.size());
+        check(!subscriber.completed && subscriber.error == null, "terminated early");
+    }
+
+    /*
+     * Requesting more than there are matches delivers every match in list order, then completes once.
+     */
+    private static void completesOnceTheScanIsExhausted()
+    {
+        final List<Literature>    books      = sampleBooks();
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher(books).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        check(subscriber.items.equals(books), "delivered " + subscriber.items);
+        check(subscriber.completed, "did not complete");
+
+        subscriber.subscription.request(1);
+        check(subscriber.completions == 1, "completed " + subscriber.completions + " times");
+    }
+
+    /*
+     * No items or terminal signal are delivered after a cancel.
+     */
+    private static void stopsAfterCancel()
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher(sampleBooks()).subscribe(subscriber);
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(Long.MAX_VALUE);
+        check(subscriber.items.size() == 1, "delivered " + subscriber.items.size() + " after cancel");
+        check(!subscriber.completed && subscriber.error == null, "terminal signal after cancel");
+    }
+
+    /*
+     * A cancel that arrives while the scan is searching for the next match stops the scan there,
+     * without reading the rest of the book list and without a terminal signal.
+     */
+    private static void stopsAScanInProgress()
+    {
+        final List<Literature>    books      = new ArrayList<>();
+        final int[]               examined   = {0};
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        for(int i = 0; i < BOOK_COUNT; i++)
+        {
+            books.add(new Novel("Title " + i, "Author", 2000));
+        }
+
+        // The filter matches nothing and cancels part-way, as a subscriber on another thread would
+        new BookPublisher<Literature>(cancelled -> cursor(books, cancelled, book ->
+        {
+            examined[0]++;
+            if(examined[0] == CANCEL_AFTER)
+            {
+                subscriber.subscription.cancel();
+            }
+            return false;
+        }), Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        check(examined[0] == CANCEL_AFTER, "scan examined " + examined[0] + " books after cancel");
+        check(!subscriber.completed && subscriber.error == null, "terminal signal after cancel");
+    }
+
+    /*
+     * A request for zero items is reported through onError, as the reactive streams rules require.
+     */
+    private static void reportsANonPositiveRequest()
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher(sampleBooks()).subscribe(subscriber);
+        subscriber.subscription.request(0);
+        check(subscriber.error instanceof IllegalArgumentException, "error was " + subscriber.error);
+        check(subscriber.items.isEmpty(), "items delivered after a bad request");
+    }
+
+    /*
+     * Returns books whose titles all contain WORD.
+     */
+    private static List<Literature> sampleBooks()
+    {
+        final List<Literature> books = new ArrayList<>();
+
+        for(int i = 0; i < BOOK_COUNT; i++)
+        {
+            books.add(new Magazine(WORD + " " + i, "Editor", 1990 + i));
+        }
+        return books;
+    }
+
+    /*
+     * Returns a publisher of the books containing WORD that delivers on the calling thread.
+     */
+    private static BookPublisher<Literature> publisher(final List<Literature> books)
+    {
+        return new BookPublisher<>(cancelled -> cursor(books, cancelled, book -> book.getTitle().contains(WORD)),
+                                   Runnable::run);
+    }
+
+    /*
+     * Returns a cursor over the books that stops once the subscription is cancelled.
+     */
+    private static BookCursor<Literature> cursor(final List<Literature> books,
+                                                 final BooleanSupplier cancelled,
+                                                 final Predicate<Literature> filter)
+    {
+        return new BookCursor<>(books, filter, WORD, null, 0).stopWhen(cancelled);
+    }
+
+    /*
+     * Throws an AssertionError with the message if the condition is false.
+     */
+    private static void check(final boolean condition, final String message)
+    {
+        if(!condition)
+        {
+            throw new AssertionError(message);
+        }
+    }
+
+    /*
+     * A subscriber that records every signal it receives.
+     */
+    private static final class RecordingSubscriber implements Flow.Subscriber<Literature>
+    {
+        private final List<Literature>  items; // Items received, in order
+        private       Flow.Subscription subscription; // The subscription, once subscribed
+        private       boolean           completed; // True once onComplete has been received
+        private       int               completions; // Times onComplete has been received
+        private       Throwable         error; // The error received, if any
+
+        private RecordingSubscriber()
+        {
+            this.items = new ArrayList<>();
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final Literature item)
+        {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable)
+        {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+            completions++;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package ca.comp2522.bookstore;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Randomized tests for the title trie and fingerprint index behind {@link BookStore}. A long run of
+ * random adds under every duplicate policy, removals and title, author and year updates is applied
+ * both to a store and to a plain list, and after every step the store's book list, prefix
+ * completions, duplicate count and duplicate detection are checked against brute-force answers
+ * computed from the list. The titles, authors and years are drawn from small pools, so duplicates,
+ * shared prefixes and books held more than once are common. A failed check throws an AssertionError.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class BookStoreIndexTest
+{
+
+    private static final long     DEFAULT_SEED = 2522L; // Seed used when none is given to main
+    private static final int      STEPS        = 5000; // Random operations applied per run
+    private static final int      NO_LIMIT     = Integer.MAX_VALUE; // Completion limit that returns every match
+    private static final int      NOT_FOUND    = -1; // Position returned when the model holds no match
+    private static final int      ADD_CHANCE   = 50; // Percentage of steps that add a book
+    private static final int      READD_CHANCE = 10; // Percentage of adds that offer a book already held
+    private static final int      PERCENT      = 100; // Bound for a random percentage
+    private static final String[] TITLES       = {"Dune", "dune", "  DUNE ", "Dune Messiah", "Emma", "EMMA",
+                                                  "Emma  Two", "Ulysses", "The Hobbit", "the   hobbit", "The"};
+    private static final String[] AUTHORS      = {"Ann", "Bob"};
+    private static final int[]    YEARS        = {1990, 1991};
+    private static final String[] PREFIXES     = {"", "d", "du", "dune", "dune m", "e", "emma", "emma  t",
+                                                  "t", "the", "the h", "u", "x"};
+
+    /**
+     * Runs the randomized test.
+     *
+     * @param args optionally, the random seed
+     */
+    public static void main(final String[] args)
+    {
+        final long seed = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_SEED;
+
+        run(new Random(seed));
+        System.out.println("BookStoreIndexTest passed, seed " + seed);
+    }
+
+    /*
+     * Applies random operations to a store and a model list, checking the store after each one.
+     */
+    private static void run(final Random random)
+    {
+        final BookStore<Literature> store          = new BookStore<>("Random", false);
+        final List<Literature>      model          = new ArrayList<>();
+        int                         duplicateCount = 0;
+
+        for(int step = 0; step < STEPS; step++)
+        {
+            final int roll = random.nextInt(PERCENT);
+
+            if(roll < ADD_CHANCE || model.isEmpty())
+            {
+                final DuplicatePolicy policy = DuplicatePolicy.values()[random.nextInt(DuplicatePolicy.values().length)];
+                final Literature      book;
+                final int             duplicate;
+                final boolean         added;
+
+                if(!model.isEmpty() && random.nextInt(PERCENT) < READD_CHANCE)
+                {
+                    book = model.get(random.nextInt(model.size()));
+                }
+                else
+                {
+                    book = randomBook(random);
+                }
+
+                duplicate = findSameWork(model, book);
+                store.setDuplicatePolicy(policy);
+                added = store.addItem(book);
+                if(duplicate != NOT_FOUND)
+                {
+                    duplicateCount++;
+                }
+
+                if(duplicate != NOT_FOUND && policy == DuplicatePolicy.REJECT)
+                {
+                    check(!added, "step " + step + ": duplicate " + book + " was not rejected");
+                }
+                else if(duplicate != NOT_FOUND && policy == DuplicatePolicy.REPLACE)
+                {
+                    check(added, "step " + step + ": replacement " + book + " was not added");
+                    model.set(duplicate, book);
+                }
+                else
+                {
+                    check(added, "step " + step + ": " + book + " was not added");
+                    model.add(book);
+                }
+            }
+            else if(roll % 2 == 0)
+            {
+                final Literature book = model.get(random.nextInt(model.size()));
+
+                check(store.removeItem(book), "step " + step + ": held book " + book + " was not removed");
+                model.remove(indexOfIdentical(model, book));
+            }
+            else
+            {
+                final Literature book = model.get(random.nextInt(model.size()));
+
+                check(store.updateItem(book, changed -> randomChange(random, changed)),
+                      "step " + step + ": held book " + book + " was not updated");
+            }
+
+            checkStore(store, model, duplicateCount, step);
+            if(!model.isEmpty())
+            {
+                checkCopyIsRejected(store, model.get(random.nextInt(model.size())), step);
+                duplicateCount++;
+            }
+        }
+    }
+
+    /*
+     * Checks the store's book list, completions and duplicate count against the model.
+     */
+    private static void checkStore(final BookStore<Literature> store,
+                                   final List<Literature> model,
+                                   final int duplicateCount,
+                                   final int step)
+    {
+        final List<Literature> books = store.getBookList();
+
+        check(books.size() == model.size(), "step " + step + ": book count");
+        for(int i = 0; i < model.size(); i++)
+        {
+            check(books.get(i) == model.get(i), "step " + step + ": book at position " + i);
+        }
+
+        for(final String prefix : PREFIXES)
+        {
+            final List<Literature> expected = new ArrayList<>();
+
+            for(final Literature book : model)
+            {
+                if(book.getTitle().toLowerCase().startsWith(prefix))
+                {
+                    expected.add(book);
+                }
+            }
+            check(sameItems(store.completeTitle(prefix, NO_LIMIT), expected),
+                  "step " + step + ": completions for '" + prefix + "'");
+        }
+
+        check(store.getDuplicateCount() == duplicateCount, "step " + step + ": duplicate count");
+    }
+
+    /*
+     * Offers a copy of a held book, with its title in a different case and spacing, under the REJECT
+     * policy, and checks that it is found as a duplicate and not added.
+     */
+    private static void checkCopyIsRejected(final BookStore<Literature> store,
+                                            final Literature held,
+                                            final int step)
+    {
+        final int size = store.getItemCount();
+
+        store.setDuplicatePolicy(DuplicatePolicy.REJECT);
+        check(!store.addItem(copyOf(held, " " + held.getTitle().toUpperCase())),
+              "step " + step + ": copy of " + held + " was not detected");
+        check(store.getItemCount() == size, "step " + step + ": rejected copy was added");
+    }
+
+    /*
+     * Returns the position of the first book in the model that is the same work, or NOT_FOUND.
+     */
+    private static int findSameWork(final List<Literature> model, final Literature book)
+    {
+        for(int i = 0; i < model.size(); i++)
+        {
+            final Literature other = model.get(i);
+
+            if(other.getClass() == book.getClass()
+               && other.getYearPublished() == book.getYearPublished()
+               && other.getAuthor().equals(book.getAuthor())
+               && normalize(other.getTitle()).equals(normalize(book.getTitle())))
+            {
+                return i;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /*
+     * Lower-cases a title and collapses its whitespace, written independently of the store's version.
+     */
+    private static String normalize(final String title)
+    {
+        return String.join(" ", title.trim().toLowerCase().split("\\s+"));
+    }
+
+    /*
+     * Returns the position of the first occurrence of the very same object in the model.
+     */
+    private static int indexOfIdentical(final List<Literature> model, final Literature book)
+    {
+        for(int i = 0; i < model.size(); i++)
+        {
+            if(model.get(i) == book)
+            {
+                return i;
+            }
+        }
+        throw new AssertionError("model does not hold " + book);
+    }
+
+    /*
+     * Checks that two lists hold the same objects the same number of times, in any order.
+     */
+    private static boolean sameItems(final List<Literature> actual, final List<Literature> expected)
+    {
+        final Map<Literature, Integer> counts = new IdentityHashMap<>();
+
+        if(actual.size() != expected.size())
+        {
+            return false;
+        }
+        for(final Literature book : expected)
+        {
+            counts.merge(book, 1, Integer::sum);
+        }
+        for(final Literature book : actual)
+        {
+            if(counts.merge(book, -1, Integer::sum) < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Creates a random book from the pools.
+     */
+    private static Literature randomBook(final Random random)
+    {
+        final String title  = TITLES[random.nextInt(TITLES.length)];
+        final String author = AUTHORS[random.nextInt(AUTHORS.length)];
+        final int    year   = YEARS[random.nextInt(YEARS.length)];
+
+        switch(random.nextInt(3))
+        {
+            case 0:
+                return new Novel(title, author, year);
+            case 1:
+                return new Magazine(title, author, year);
+            default:
+                return new ComicBook(title, author, year);
+        }
+    }
+
+    /*
+     * Changes the title, author or year of a magazine or comic book; novels cannot be changed.
+     */
+    private static void randomChange(final Random random, final Literature book)
+    {
+        final String title  = TITLES[random.nextInt(TITLES.length)];
+        final String author = AUTHORS[random.nextInt(AUTHORS.length)];
+        final int    year   = YEARS[random.nextInt(YEARS.length)];
+
+        if(book instanceof Magazine)
+        {
+            final Magazine magazine = (Magazine) book;
+
+            magazine.setTitle(title);
+            magazine.setAuthor(author);
+            magazine.setYearPublished(year);
+        }
+        else if(book instanceof ComicBook)
+        {
+            final ComicBook comic = (ComicBook) book;
+
+            comic.setTitle(title);
+            comic.setAuthor(author);
+            comic.setYearPublished(year);
+        }
+    }
+
+    /*
+     * Returns a new book of the same type, author and year with the given title.
+     */
+    private static Literature copyOf(final Literature book, final String title)
+    {
+        if(book instanceof Novel)
+        {
+            return new Novel(title, book.getAuthor(), book.getYearPublished());
+        }
+        else if(book instanceof Magazine)
+        {
+            return new Magazine(title, book.getAuthor(), book.getYearPublished());
+        }
+        return new ComicBook(title, book.getAuthor(), book.getYearPublished());
+    }
+
+    /*
+     * Throws an AssertionError with the message if the condition is false.
+     */
+    private static void check(final boolean condition, final String message)
+    {
+        if(!condition)
+        {
+            throw new AssertionError(message);
+        }
+    }
+}
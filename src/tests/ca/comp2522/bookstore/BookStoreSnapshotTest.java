@@ -0,0 +1,220 @@
+package ca.comp2522.bookstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Round-trip tests for {@link BookStoreSnapshot}. Each test writes a store to a temporary file,
+ * reads it back and checks that the restored store holds the same books, title map, indexes and
+ * duplicate settings. A failed check throws an AssertionError.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class BookStoreSnapshotTest
+{
+
+    private static final int    MAGIC_OFFSET   = 0; // Byte offset of the magic number in a snapshot
+    private static final int    VERSION_OFFSET = Integer.BYTES; // Byte offset of the format version
+    private static final int    BAD_VALUE      = -7; // Written over a header field to corrupt it
+    private static final int    NO_LIMIT       = Integer.MAX_VALUE; // Completion limit that returns every match
+    private static final String FILE_PREFIX    = "snapshot-test-"; // Prefix of the temporary snapshot files
+
+    /**
+     * Runs every snapshot test.
+     *
+     * @param args unused
+     * @throws IOException if a temporary snapshot cannot be written or read
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        roundTripsSampleStore();
+        roundTripsEmptyStore();
+        roundTripsDuplicateSettings();
+        roundTripsBookHeldTwice();
+        rejectsCorruptHeader();
+        System.out.println("BookStoreSnapshotTest passed");
+    }
+
+    /*
+     * The sample store comes back with the same books in order, the same title map and working indexes.
+     */
+    private static void roundTripsSampleStore() throws IOException
+    {
+        final BookStore<Literature> store    = new BookStore<>("Sample", true);
+        final BookStore<Literature> restored = roundTrip(store);
+
+        check(restored.getStoreName().equals(store.getStoreName()), "store name");
+        checkSameBooks(store, restored);
+        check(restored.getBookMap().keySet().equals(store.getBookMap().keySet()), "title map keys");
+        for(final String prefix : new String[]{"", "t", "The", "sp", "zz"})
+        {
+            check(titles(restored.completeTitle(prefix, NO_LIMIT)).equals(titles(store.completeTitle(prefix, NO_LIMIT))),
+                  "completions for '" + prefix + "'");
+        }
+        for(final Literature book : restored.getBookList())
+        {
+            check(restored.hasBookBy(book.getAuthor()), "author filter for " + book);
+            check(restored.isThereABookWrittenIn(book.getYearPublished()), "year column for " + book);
+        }
+    }
+
+    /*
+     * An empty store restores as empty.
+     */
+    private static void roundTripsEmptyStore() throws IOException
+    {
+        final BookStore<Literature> restored = roundTrip(new BookStore<>("Empty", false));
+
+        check(restored.getItemCount() == 0, "empty store has no books");
+        check(restored.completeTitle("", NO_LIMIT).isEmpty(), "empty store has no completions");
+    }
+
+    /*
+     * The duplicate policy and count survive, and the restored fingerprint table still finds duplicates.
+     */
+    private static void roundTripsDuplicateSettings() throws IOException
+    {
+        final BookStore<Literature> store = new BookStore<>("Duplicates", false);
+        final BookStore<Literature> restored;
+
+        store.addItem(new Novel("Dune", "Frank Herbert", 1965));
+        store.addItem(new Novel("  DUNE ", "Frank Herbert", 1965));
+        store.setDuplicatePolicy(DuplicatePolicy.REJECT);
+
+        restored = roundTrip(store);
+        checkSameBooks(store, restored);
+        check(restored.getDuplicatePolicy() == DuplicatePolicy.REJECT, "duplicate policy");
+        check(restored.getDuplicateCount() == store.getDuplicateCount(), "duplicate count");
+        check(!restored.addItem(new Novel("dune", "Frank Herbert", 1965)), "restored index finds the duplicate");
+        check(restored.addItem(new Novel("Dune", "Frank Herbert", 1966)), "a different year is not a duplicate");
+    }
+
+    /*
+     * A book object held at two positions is restored as one object at both positions.
+     */
+    private static void roundTripsBookHeldTwice() throws IOException
+    {
+        final BookStore<Literature> store = new BookStore<>("Twice", false);
+        final Novel                 novel = new Novel("Emma", "Jane Austen", 1815);
+        final BookStore<Literature> restored;
+        final List<Literature>      books;
+
+        store.addItem(novel);
+        store.addItem(new Magazine("Wired", "Louis Rossetto", 1993));
+        store.addItem(novel);
+
+        restored = roundTrip(store);
+        books    = restored.getBookList();
+        checkSameBooks(store, restored);
+        check(books.get(0) == books.get(2), "one object at both positions");
+        check(restored.completeTitle("em", NO_LIMIT).size() == 2, "both copies are in the trie");
+        check(restored.removeItem(books.get(0)) && restored.removeItem(books.get(1)), "both copies can be removed");
+        check(restored.completeTitle("em", NO_LIMIT).isEmpty(), "trie is empty after both removals");
+    }
+
+    /*
+     * A file with the wrong magic number or version is refused with an IOException.
+     */
+    private static void rejectsCorruptHeader() throws IOException
+    {
+        final Path file = Files.createTempFile(FILE_PREFIX, ".bin");
+
+        try
+        {
+            for(final int offset : new int[]{MAGIC_OFFSET, VERSION_OFFSET})
+            {
+                final byte[] bytes;
+
+                BookStoreSnapshot.write(new BookStore<>("Corrupt", true), file);
+                bytes = Files.readAllBytes(file);
+                ByteBuffer.wrap(bytes).putInt(offset, BAD_VALUE);
+                Files.write(file, bytes);
+                try
+                {
+                    BookStoreSnapshot.read(file);
+                    throw new AssertionError("corrupt header at offset " + offset + " was accepted");
+                }
+                catch(final IOException expected)
+                {
+                    // The snapshot was refused, as it should be
+                }
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /*
+     * Writes a store to a temporary snapshot and reads it back.
+     */
+    private static BookStore<Literature> roundTrip(final BookStore<Literature> store) throws IOException
+    {
+        final Path file = Files.createTempFile(FILE_PREFIX, ".bin");
+
+        try
+        {
+            BookStoreSnapshot.write(store, file);
+            return BookStoreSnapshot.read(file);
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /*
+     * Checks that two stores hold books of the same types and values in the same order.
+     */
+    private static void checkSameBooks(final BookStore<Literature> expected,
+                                       final BookStore<Literature> actual)
+    {
+        final List<Literature> expectedBooks = expected.getBookList();
+        final List<Literature> actualBooks   = actual.getBookList();
+
+        check(actualBooks.size() == expectedBooks.size(), "book count");
+        for(int i = 0; i < expectedBooks.size(); i++)
+        {
+            final Literature want = expectedBooks.get(i);
+            final Literature got  = actualBooks.get(i);
+
+            check(got.getClass() == want.getClass()
+                  && got.getTitle().equals(want.getTitle())
+                  && got.getAuthor().equals(want.getAuthor())
+                  && got.getYearPublished() == want.getYearPublished(),
+                  "book " + i + ": expected " + want + " but was " + got);
+        }
+    }
+
+    /*
+     * Returns the titles of the books, in order.
+     */
+    private static List<String> titles(final List<Literature> books)
+    {
+        final List<String> titles = new ArrayList<>(books.size());
+
+        for(final Literature book : books)
+        {
+            titles.add(book.getTitle());
+        }
+        return titles;
+    }
+
+    /*
+     * Throws an AssertionError with the message if the condition is false.
+     */
+    private static void check(final boolean condition, final String message)
+    {
+        if(!condition)
+        {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ca.comp2522.bookstore;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times removing books from a store of generated novels, which shifts the positions held by the
+ * fingerprint index. The book and removal counts can be given as the first two arguments.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class RemovalBenchmark
+{
+
+    private static final int    DEFAULT_BOOKS    = 200_000; // Books generated when no count is given
+    private static final int    DEFAULT_REMOVALS = 200; // Books removed when no count is given
+    private static final long   SEED             = 2522L; // Seed for choosing the books to remove
+    private static final double NANOS_PER_MILLI  = 1_000_000.0; // Converts System.nanoTime differences to ms
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optionally, the number of books to generate and the number to remove
+     */
+    public static void main(final String[] args)
+    {
+        final int                   bookCount    = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BOOKS;
+        final int                   removalCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_REMOVALS;
+        final BookStore<Literature> store        = new BookStore<>("Benchmark", false);
+        final List<Literature>      books        = store.getBookList();
+        final Random                random       = new Random(SEED);
+        final long                  start;
+
+        for(int i = 0; i < bookCount; i++)
+        {
+            store.addItem(new Novel("Title number " + i, "Author " + i, 2000));
+        }
+
+        start = System.nanoTime();
+        for(int i = 0; i < removalCount && !books.isEmpty(); i++)
+        {
+            store.removeItem(books.get(random.nextInt(books.size())));
+        }
+
+        System.out.printf("removed %d of %d books in %.0f ms%n",
+                          bookCount - store.getItemCount(),
+                          bookCount,
+                          (System.nanoTime() - start) / NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,68 @@
+package ca.comp2522.bookstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Times writing and restoring a snapshot of a store of generated novels. The first round includes
+ * JIT warm-up and a cold file cache; later rounds show the steady state. The book count can be given
+ * as the first argument; large counts need a heap of a few gigabytes.
+ *
+ * @author Bullen Kosa
+ * @author Isaac Kehler
+ * @version 1.0
+ */
+public class SnapshotBenchmark
+{
+
+    private static final int    DEFAULT_BOOKS   = 2_000_000; // Books generated when no count is given
+    private static final int    ROUNDS          = 3; // Write and read rounds timed
+    private static final int    AUTHORS         = 1000; // Distinct authors among the generated books
+    private static final int    FIRST_YEAR      = 1900; // Earliest generated year of publication
+    private static final int    YEARS           = 120; // Distinct years among the generated books
+    private static final double NANOS_PER_MILLI = 1_000_000.0; // Converts System.nanoTime differences to ms
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optionally, the number of books to generate
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final int                   bookCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BOOKS;
+        final BookStore<Literature> store     = new BookStore<>("Benchmark", false);
+        final Path                  file      = Files.createTempFile("snapshot-benchmark-", ".bin");
+
+        for(int i = 0; i < bookCount; i++)
+        {
+            store.addItem(new Novel("Title number " + i, "Author " + (i % AUTHORS), FIRST_YEAR + i % YEARS));
+        }
+
+        try
+        {
+            for(int round = 1; round <= ROUNDS; round++)
+            {
+                final long                  start = System.nanoTime();
+                final long                  written;
+                final BookStore<Literature> restored;
+
+                BookStoreSnapshot.write(store, file);
+                written  = System.nanoTime();
+                restored = BookStoreSnapshot.read(file);
+
+                System.out.printf("round %d: %d books, write %.0f ms, read %.0f ms, %d bytes%n",
+                                  round,
+                                  restored.getItemCount(),
+                                  (written - start) / NANOS_PER_MILLI,
+                                  (System.nanoTime() - written) / NANOS_PER_MILLI,
+                                  Files.size(file));
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+}